@@ -1,12 +1,15 @@
 package ai.backend.clienttester;
 
 import ai.backend.client.ClientConfig;
+import ai.backend.client.Deadline;
 import ai.backend.client.Kernel;
 import ai.backend.client.exceptions.AuthorizationFailureException;
 import ai.backend.client.exceptions.ConfigurationException;
+import ai.backend.client.exceptions.DeadlineExceededException;
 import ai.backend.client.exceptions.NetworkFailureException;
 import ai.backend.client.values.ExecutionMode;
 import ai.backend.client.values.ExecutionResult;
+import ai.backend.client.values.ResourceUsage;
 import ai.backend.client.values.RunStatus;
 import com.google.gson.JsonObject;
 import org.apache.commons.cli.*;
@@ -17,6 +20,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import static java.util.logging.Level.SEVERE;
@@ -71,6 +75,13 @@ public class Main {
                 .required(false)
                 .build());
 
+        options.addOption(Option.builder("t")
+                .longOpt("timeout")
+                .hasArg()
+                .desc("Time limit of the upload and execution in seconds")
+                .required(false)
+                .build());
+
         options.addOption(Option.builder("d")
                 .longOpt("basedirectory")
                 .hasArg()
@@ -116,18 +127,31 @@ public class Main {
         }
         LOGGER.info(String.format("Kernel is ready : %s", kernel.getId()));
 
-        uploadFiles(kernel, target_files);
+        Deadline deadline = null;
+        if (cmd.hasOption("timeout")) {
+            try {
+                deadline = Deadline.after(Long.parseLong(cmd.getOptionValue("timeout")), TimeUnit.SECONDS);
+            } catch (NumberFormatException e) {
+                System.err.println("Invalid timeout");
+                System.exit(1);
+            }
+        }
 
         String buildCmd = cmd.getOptionValue("b", "*");
         String execCmd = cmd.getOptionValue("e", "*");
-        runCode(kernel, buildCmd, execCmd);
+        try {
+            uploadFiles(kernel, target_files, deadline);
+            runCode(kernel, buildCmd, execCmd, deadline);
+        } catch (DeadlineExceededException e) {
+            LOGGER.log(SEVERE, "Time limit exceeded");
+        }
 
         finish(kernel);
 
     }
 
-    private static void uploadFiles(Kernel kernel, HashMap<String, String> files) {
-        kernel.upload(files);
+    private static void uploadFiles(Kernel kernel, HashMap<String, String> files, Deadline deadline) {
+        kernel.upload(files, deadline);
     }
 
     private static Kernel createKernel(CommandLine cmd) throws ConfigurationException {
@@ -166,6 +190,10 @@ public class Main {
     }
 
     public static void runCode(Kernel kernel, String buildCmd, String execCmd) {
+        runCode(kernel, buildCmd, execCmd, null);
+    }
+
+    public static void runCode(Kernel kernel, String buildCmd, String execCmd, Deadline deadline) {
         BufferedReader stdin = new BufferedReader(new InputStreamReader(System.in));
         ExecutionMode mode = ExecutionMode.BATCH;
         String runId = Kernel.generateRunId();
@@ -175,7 +203,7 @@ public class Main {
             opts.addProperty("build", buildCmd);
             opts.addProperty("exec", execCmd);
 
-            ExecutionResult result = kernel.execute(mode, runId, code, opts);
+            ExecutionResult result = kernel.execute(mode, runId, code, opts, deadline);
             System.out.print(result.getStdout());
             System.err.print(result.getStderr());
             if (result.isFinished()) {
@@ -197,6 +225,10 @@ public class Main {
 
     private static void finish(Kernel kernel) {
         kernel.destroy();
+        ResourceUsage usage = kernel.getResourceUsage();
+        if (usage != null) {
+            LOGGER.info(String.format("Session usage : %s", usage));
+        }
     }
 
     protected static String getBaseDirectory(String base) throws IOException {
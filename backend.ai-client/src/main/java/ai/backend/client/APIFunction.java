@@ -5,34 +5,82 @@ import com.google.gson.*;
 import okhttp3.*;
 
 import javax.net.ssl.HttpsURLConnection;
-import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.TimeZone;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.io.IOException;
 
 public class APIFunction {
-    protected static Gson GSON;
+    protected static final MediaType JSON = MediaType.parse("application/json");
     protected final ClientConfig config;
 
-    private final Auth auth;
-    private static SimpleDateFormat DATEFORMAT;
-    private final OkHttpClient restClient = new OkHttpClient();
+    private volatile Endpoint endpoint;
+    private volatile Keypair keypair;
+    private volatile Auth auth;
 
-    static {
-        DATEFORMAT = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
-        DATEFORMAT.setTimeZone(TimeZone.getTimeZone("GMT+0"));
-        GSON = new Gson();
+    /**
+     * Holds the shared Gson instance so that it is created only when a JSON body is first encoded.
+     */
+    private static class GsonHolder {
+        static final Gson GSON = new Gson();
     }
 
     public APIFunction(ClientConfig config) {
+        this(config, config.getKeypairPool().select());
+    }
+
+    /**
+     * @param keypair The keypair to sign requests with, instead of the one selected by the keypair pool.
+     */
+    protected APIFunction(ClientConfig config, Keypair keypair) {
         this.config = config;
-        this.auth = new Auth(config);
+        config.startHealthChecks();
+        this.endpoint = config.getEndpointPool().select();
+        this.keypair = keypair;
+        this.auth = new Auth(config, this.keypair, this.endpoint);
+    }
+
+    /**
+     * Returns the Gson instance shared by all API objects.
+     */
+    protected static Gson gson() {
+        return GsonHolder.GSON;
     }
 
     public ClientConfig getClientConfig() {
         return this.config;
     }
 
+    /**
+     * Returns the endpoint which this object sends requests to.
+     */
+    public Endpoint getEndpoint() {
+        return this.endpoint;
+    }
+
+    /**
+     * Send subsequent requests to the given endpoint.
+     */
+    protected void bindEndpoint(Endpoint endpoint) {
+        this.auth = new Auth(this.config, this.keypair, endpoint);
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * Returns the keypair which this object signs requests with.
+     */
+    public Keypair getKeypair() {
+        return this.keypair;
+    }
+
+    /**
+     * Sign subsequent requests with the given keypair.
+     */
+    protected void bindKeypair(Keypair keypair) {
+        this.auth = new Auth(this.config, keypair, this.endpoint);
+        this.keypair = keypair;
+    }
+
     /**
      * Send an API request and read the response from the server.
      * It automatically parses the response body according to the server-given Content-Type header.
@@ -47,78 +95,236 @@ public class APIFunction {
 
     protected Response makeRequest(String method, String queryString, RequestBody requestBody, String authBaseString)
             throws IOException, BackendClientException {
+        return this.makeRequest(method, queryString, requestBody, authBaseString, null);
+    }
+
+    /**
+     * Send an API request which must complete by the given deadline.
+     * The HTTP call is cancelled when the deadline expires, and the response body is read before returning
+     * so that a slowly arriving body is also bounded by the deadline.
+     *
+     * @param deadline The deadline of the request, or null to wait indefinitely.
+     * @throws DeadlineExceededException if the deadline expires before the response is read
+     */
+    protected Response makeRequest(final String method, final String queryString, final RequestBody requestBody,
+                                   final String authBaseString, Deadline deadline)
+            throws IOException, BackendClientException {
+        if (deadline != null && deadline.isExpired()) {
+            throw new DeadlineExceededException("The deadline expired before sending the request.");
+        }
+        Request request = this.buildRequest(method, queryString, requestBody, authBaseString);
+        RequestHedger hedger = this.config.getHedger();
+        Endpoint endpoint = this.endpoint;
+        Keypair keypair = this.keypair;
+        long started = System.nanoTime();
+        Response response;
+        try {
+            if (hedger != null && method.equals("GET")) {
+                // The hedged copy is signed again so that its Date header is fresh.
+                response = hedger.execute(this.config.getHttpClient(), request, new RequestHedger.RequestFactory() {
+                    @Override
+                    public Request newRequest() throws IOException {
+                        return buildRequest(method, queryString, requestBody, authBaseString);
+                    }
+                }, deadline);
+            } else {
+                response = send(this.config.getHttpClient().newCall(request), deadline);
+            }
+        } catch (IOException e) {
+            if (deadline != null && deadline.isExpired()) {
+                throw new DeadlineExceededException("The deadline expired while waiting for the response.", e);
+            }
+            endpoint.recordFailure(EndpointPool.FAILURE_THRESHOLD);
+            throw e;
+        }
+        if (response.code() >= 500) {
+            endpoint.recordFailure(EndpointPool.FAILURE_THRESHOLD);
+        } else {
+            endpoint.recordSuccess(System.nanoTime() - started);
+        }
+        if (response.code() == 429) {
+            this.config.getKeypairPool().throttled(keypair);
+        }
+        if (this.config.isCompression()) {
+            response = Compression.decompress(response, this.config.getMetrics());
+        }
+        if (!response.isSuccessful()) {
+            throw errorFromResponse(response);
+        }
+        return response;
+    }
+
+    private static Response send(final Call call, Deadline deadline) throws IOException {
+        if (deadline == null) {
+            return call.execute();
+        }
+        ScheduledFuture<?> timeout = ClientExecutors.timer().schedule(new Runnable() {
+            @Override
+            public void run() {
+                call.cancel();
+            }
+        }, deadline.timeRemaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        try {
+            return readFully(call.execute());
+        } finally {
+            timeout.cancel(false);
+        }
+    }
+
+    /**
+     * Read the whole body of the given response into memory and close the underlying connection stream.
+     */
+    static Response readFully(Response response) throws IOException {
+        ResponseBody body = response.body();
+        if (body == null) {
+            return response;
+        }
+        byte[] bytes = body.bytes();
+        return response.newBuilder().body(ResponseBody.create(body.contentType(), bytes)).build();
+    }
+
+    private Request buildRequest(String method, String queryString, RequestBody requestBody, String authBaseString)
+            throws IOException {
+        Request.Builder builder = this.newSignedRequest(method, queryString, requestBody.contentType(), authBaseString);
+        if (!method.equals("GET") && !method.equals("HEAD")) {
+            // The signature covers the uncompressed body as the server verifies it after decoding.
+            if (this.config.isCompression() && requestBody.contentLength() >= this.config.getCompressionThreshold()
+                    && !(requestBody instanceof MultipartBody)) {
+                requestBody = Compression.gzip(requestBody, this.config.getMetrics());
+                builder.addHeader("Content-Encoding", Compression.GZIP);
+            }
+            builder.method(method, requestBody)
+                    .addHeader("Content-Length", String.format("%d", requestBody.contentLength()));
+        } else {
+            // GET and HEAD requests cannot carry a body, but the content type is still used for signing.
+            builder.method(method, null);
+        }
+        if (this.config.isCompression()) {
+            // Setting this header explicitly disables OkHttp's transparent decompression,
+            // so that the compression ratio and CPU time can be measured.
+            builder.addHeader("Accept-Encoding", Compression.GZIP);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Prepare a request builder carrying the Backend.AI authentication headers.
+     * The caller must set the HTTP method and body of the returned builder.
+     *
+     * @param method HTTP method name used for signing
+     * @param queryString HTTP URI path and GET query parameters (without the API version prefix)
+     * @param contentType Content-Type of the request body used for signing
+     * @param authBaseString Request body string used for signing
+     * @return A request builder with the URL and signed headers
+     * @throws InvalidParametersException if the queryString does not start with a slash
+     */
+    protected Request.Builder newSignedRequest(String method, String queryString, MediaType contentType, String authBaseString)
+            throws InvalidParametersException {
         Date now = new Date();
         if (!queryString.startsWith("/")) {
             throw new InvalidParametersException("queryString must start with a slash.");
         }
         queryString = "/" + this.config.getApiVersionMajor() + queryString;
-        String dateString = String.format("%s%s", APIFunction.DATEFORMAT.format(now), "+00:00");
+        String dateString = Auth.formatDate(now);
         String sig = this.auth.getCredentialString(
                 method,
                 queryString,
                 now,
-                String.format("%s/%s",requestBody.contentType().type(), requestBody.contentType().subtype()),
+                String.format("%s/%s", contentType.type(), contentType.subtype()),
                 authBaseString);
         String auth = String.format("BackendAI signMethod=HMAC-SHA256, credential=%s" ,sig);
-        Request request = new Request.Builder()
-                .url(String.format("%s%s", this.config.getEndPoint(), queryString))
-                .method(method, requestBody)
-                .addHeader("Content-Type", requestBody.contentType().toString())
-                .addHeader("Content-Length", String.format("%d", requestBody.contentLength()))
+        return new Request.Builder()
+                .url(String.format("%s%s", this.endpoint.getUrl(), queryString))
+                .addHeader("Content-Type", contentType.toString())
                 .addHeader("X-BackendAI-Version", this.config.getApiVersion())
                 .addHeader("Date", dateString)
                 .addHeader("User-Agent", this.config.getUserAgent())
-                .addHeader("Authorization", auth)
+                .addHeader("Authorization", auth);
+    }
+
+    /**
+     * Open a WebSocket connection to a streaming API.
+     * The upgrade request is signed in the same way as ordinary API requests.
+     *
+     * @param queryString HTTP URI path (without the API version prefix)
+     * @param listener The listener receiving WebSocket events
+     * @return The WebSocket being connected
+     */
+    protected WebSocket openWebSocket(String queryString, WebSocketListener listener) {
+        Request request = this.newSignedRequest("GET", queryString, JSON, "")
+                .get()
                 .build();
-        Response response = this.restClient.newCall(request).execute();
-        if (!response.isSuccessful()) {
-            int code = response.code();
-            String errorMessage;
-            try {
-                JsonObject o = parseResponseAsJson(response);
-                errorMessage = o.get("title").getAsString();
-            } catch (IOException e) {
-                errorMessage = parseResponseAsString(response);
-            }
-            if (code > HttpsURLConnection.HTTP_INTERNAL_ERROR) {
-                throw new ServiceUnavaliableException();
-            }
-            switch (code) {
-                case HttpsURLConnection.HTTP_UNAUTHORIZED:
-                    throw new AuthorizationFailureException(errorMessage);
-                case HttpsURLConnection.HTTP_PRECON_FAILED:
-                case 429: // too many requests
-                    throw new ResourceLimitException(errorMessage);
-                case HttpsURLConnection.HTTP_NOT_FOUND:
-                    throw new KernelExpiredException(errorMessage);
-                default:
-                    throw new BackendClientException(String.format("%d %s", code, errorMessage));
-            }
+        return this.config.getHttpClient().newWebSocket(request, listener);
+    }
+
+    /**
+     * Convert an unsuccessful response into the matching client exception.
+     *
+     * @param response An unsuccessful HTTP response
+     * @return The exception to throw
+     * @throws IOException if reading the error body fails
+     */
+    protected static RuntimeException errorFromResponse(Response response) throws IOException {
+        int code = response.code();
+        String errorMessage;
+        try {
+            JsonObject o = parseResponseAsJson(response);
+            errorMessage = o.get("title").getAsString();
+        } catch (IOException e) {
+            errorMessage = parseResponseAsString(response);
+        }
+        if (code > HttpsURLConnection.HTTP_INTERNAL_ERROR) {
+            return new ServiceUnavaliableException();
+        }
+        switch (code) {
+            case HttpsURLConnection.HTTP_UNAUTHORIZED:
+                return new AuthorizationFailureException(errorMessage);
+            case HttpsURLConnection.HTTP_PRECON_FAILED:
+            case 429: // too many requests
+                return new ResourceLimitException(errorMessage);
+            case HttpsURLConnection.HTTP_NOT_FOUND:
+                return new KernelExpiredException(errorMessage);
+            default:
+                return new BackendClientException(String.format("%d %s", code, errorMessage));
         }
-        return response;
     }
 
     protected Response makeRequest(String method, String queryString, String requestBody)
             throws IOException, BackendClientException {
+        return this.makeRequest(method, queryString, requestBody, (Deadline) null);
+    }
+
+    protected Response makeRequest(String method, String queryString, String requestBody, Deadline deadline)
+            throws IOException, BackendClientException {
         RequestBody formBody = null;
         if (requestBody != null) {
-            formBody = FormBody.create(MediaType.parse("application/json"), requestBody);
+            formBody = FormBody.create(JSON, requestBody);
         } else {
-            formBody = RequestBody.create(MediaType.parse("application/json"), new byte[0]);
+            formBody = RequestBody.create(JSON, new byte[0]);
         }
 
-        return makeRequest(method, queryString, formBody, requestBody);
+        return makeRequest(method, queryString, formBody, requestBody, deadline);
     }
 
     protected Response makeRequest(String method, String queryString, JsonObject jsonBody)
             throws IOException, BackendClientException {
-        String encodedBody = GSON.toJson(jsonBody);
-        return this.makeRequest(method, queryString, encodedBody);
+        return this.makeRequest(method, queryString, jsonBody, null);
+    }
+
+    protected Response makeRequest(String method, String queryString, JsonObject jsonBody, Deadline deadline)
+            throws IOException, BackendClientException {
+        String encodedBody = gson().toJson(jsonBody);
+        return this.makeRequest(method, queryString, encodedBody, deadline);
     }
 
     protected Response makeRequest(String method, String queryString)
             throws IOException, BackendClientException {
-        return this.makeRequest(method, queryString, "");
+        return this.makeRequest(method, queryString, (Deadline) null);
+    }
+
+    protected Response makeRequest(String method, String queryString, Deadline deadline)
+            throws IOException, BackendClientException {
+        return this.makeRequest(method, queryString, "", deadline);
     }
 
     /**
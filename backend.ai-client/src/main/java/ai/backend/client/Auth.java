@@ -2,6 +2,7 @@ package ai.backend.client;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.Charset;
 import java.security.InvalidKeyException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -10,6 +11,7 @@ import java.util.Date;
 import java.util.TimeZone;
 
 public class Auth {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
 
     private final String accessKey;
     private final String secretKey;
@@ -17,13 +19,68 @@ public class Auth {
     private final String apiVersion;
     private final String hashType;
     private final String hostname;
+    private volatile SignKey cachedSignKey = null;
+
+    // SimpleDateFormat is not thread-safe, so each thread formats with its own copy.
+    private static final ThreadLocal<SimpleDateFormat> ISO8601DATEFORMAT = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return newDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+        }
+    };
+    private static final ThreadLocal<SimpleDateFormat> DAYFORMAT = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return newDateFormat("yyyyMMdd");
+        }
+    };
+
+    private static SimpleDateFormat newDateFormat(String pattern) {
+        SimpleDateFormat format = new SimpleDateFormat(pattern);
+        format.setTimeZone(TimeZone.getTimeZone("GMT+0"));
+        return format;
+    }
+
+    /**
+     * Format the given time as the value of the Date header, which is also part of the signature.
+     */
+    static String formatDate(Date date) {
+        return String.format("%s%s", ISO8601DATEFORMAT.get().format(date), "+00:00");
+    }
+
+    /**
+     * The signing key derived for a day, which is reused for all requests signed on that day.
+     */
+    private static class SignKey {
+        final String day;
+        final byte[] key;
+
+        SignKey(String day, byte[] key) {
+            this.day = day;
+            this.key = key;
+        }
+    }
 
     public Auth(ClientConfig config) {
-        this.accessKey = config.getAccessKey();
-        this.secretKey = config.getSecretKey();
-        this.endpoint = config.getEndPoint();
+        this(config, config.getEndpointPool().getEndpoints().get(0));
+    }
+
+    /**
+     * Create a signer for requests sent to the given endpoint, whose hostname is part of the signature.
+     */
+    public Auth(ClientConfig config, Endpoint endpoint) {
+        this(config, config.getKeypairPool().getKeypairs().get(0), endpoint);
+    }
+
+    /**
+     * Create a signer for requests sent with the given keypair to the given endpoint.
+     */
+    public Auth(ClientConfig config, Keypair keypair, Endpoint endpoint) {
+        this.accessKey = keypair.getAccessKey();
+        this.secretKey = keypair.getSecretKey();
+        this.endpoint = endpoint.getUrl();
         this.apiVersion = config.getApiVersion();
-        this.hostname = config.getHostname();
+        this.hostname = endpoint.getHostname();
         this.hashType = config.getHashType();
     }
 
@@ -44,11 +101,8 @@ public class Auth {
         } catch (NoSuchAlgorithmException e) {
             e.printStackTrace();
         }
-        SimpleDateFormat ISO8601DATEFORMAT = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
-        ISO8601DATEFORMAT.setTimeZone(TimeZone.getTimeZone("GMT+0"));
-
-        String dstring = String.format("%s%s", ISO8601DATEFORMAT.format(date), "+00:00");
-        String hstring = bytesToHex(digest.digest(bodyValue.getBytes()));
+        String dstring = formatDate(date);
+        String hstring = bytesToHex(digest.digest(bodyValue.getBytes(UTF8)));
 
         String result = String.format("%s\n%s\n%s\nhost:%s\ncontent-type:%s\nx-backendai-version:%s\n%s", method, queryString, dstring, this.hostname, contentType, this.apiVersion, hstring);
 
@@ -56,12 +110,16 @@ public class Auth {
     }
 
     private byte[] getSignKey(String secretKey, Date date) {
-        SimpleDateFormat sf = new SimpleDateFormat("yyyyMMdd");
-        sf.setTimeZone(TimeZone.getTimeZone("GMT+0"));
+        String day = DAYFORMAT.get().format(date);
+        SignKey cached = this.cachedSignKey;
+        if (cached != null && cached.day.equals(day)) {
+            return cached.key;
+        }
 
-        byte[] k1 = this.sign(secretKey.getBytes(), sf.format(date));
+        byte[] k1 = this.sign(secretKey.getBytes(), day);
         byte[] k2 = this.sign(k1, this.hostname);
 
+        this.cachedSignKey = new SignKey(day, k2);
         return k2;
     }
 
@@ -0,0 +1,192 @@
+package ai.backend.client;
+
+import ai.backend.client.values.RunStatus;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Tracks the batch-mode builds of a compute session, so that a run whose uploaded sources and build command
+ * are the same as the last successful build can skip the build step.
+ *
+ * The fingerprint of a build is the SHA-256 digest of the build command and the relative paths and contents of
+ * all files uploaded to the session. A build counts as successful when the run reports
+ * {@link RunStatus#BUILD_FINISHED}. All methods are thread-safe.
+ */
+class BuildTracker {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final Map<String, String> uploadedDigests = new TreeMap<String, String>();
+    private String builtFingerprint = null;
+    private String pendingRunId = null;
+    private String pendingFingerprint = null;
+    private String skippedRunId = null;
+    private String skippedBuildCmd = null;
+    private String skippedFingerprint = null;
+    private int skippedBuilds = 0;
+
+    /**
+     * Compute the content digests of the files to upload.
+     * A file which cannot be read gets a random digest so that it never matches a previous build.
+     *
+     * @param filePaths A map of the relative paths in the session to the local file paths.
+     */
+    static Map<String, String> digest(Map<String, String> filePaths) {
+        Map<String, String> digests = new TreeMap<String, String>();
+        for (Map.Entry<String, String> e : filePaths.entrySet()) {
+            String digest;
+            try {
+                digest = digestFile(new File(e.getValue()));
+            } catch (IOException ex) {
+                digest = UUID.randomUUID().toString();
+            }
+            digests.put(e.getKey(), digest);
+        }
+        return digests;
+    }
+
+    private static String digestFile(File file) throws IOException {
+        MessageDigest digest = newDigest();
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, n);
+            }
+        } finally {
+            in.close();
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Record files successfully uploaded to the session, replacing earlier uploads of the same paths.
+     */
+    synchronized void uploaded(Map<String, String> digests) {
+        this.uploadedDigests.putAll(digests);
+    }
+
+    /**
+     * Returns the options to send for a new batch run.
+     * If the build command and the uploaded files match the last successful build, the build command is
+     * replaced with an empty one so that only the execution step runs.
+     * Otherwise the run is remembered so that its build can be recorded by {@link #observe(String, RunStatus)}.
+     */
+    synchronized JsonObject prepare(String runId, JsonObject opts) {
+        if (opts == null || !opts.has("build") || !opts.get("build").isJsonPrimitive()) {
+            return opts;
+        }
+        String buildCmd = opts.get("build").getAsString();
+        if (buildCmd.isEmpty()) {
+            return opts;
+        }
+        String fingerprint = fingerprint(buildCmd);
+        if (fingerprint.equals(this.builtFingerprint)) {
+            this.skippedBuilds++;
+            this.skippedRunId = runId;
+            this.skippedBuildCmd = buildCmd;
+            this.skippedFingerprint = fingerprint;
+            JsonObject skipped = new JsonObject();
+            for (Map.Entry<String, JsonElement> e : opts.entrySet()) {
+                skipped.add(e.getKey(), e.getValue());
+            }
+            skipped.addProperty("build", "");
+            return skipped;
+        }
+        // The build about to run overwrites the outputs of the last one, even if it fails.
+        this.builtFingerprint = null;
+        this.pendingRunId = runId;
+        this.pendingFingerprint = fingerprint;
+        return opts;
+    }
+
+    /**
+     * Record the status reported for a run.
+     */
+    synchronized void observe(String runId, RunStatus status) {
+        if (status == RunStatus.BUILD_FINISHED && runId.equals(this.pendingRunId)) {
+            this.builtFingerprint = this.pendingFingerprint;
+            this.pendingRunId = null;
+            this.pendingFingerprint = null;
+        }
+    }
+
+    /**
+     * Returns the execute request body to replay on a recreated session.
+     * If the build step of the request was skipped, the build command is put back, since the new session
+     * does not have the build outputs. Otherwise the body is returned as is.
+     */
+    synchronized String restoreSkippedBuild(String body) {
+        if (this.skippedRunId == null || body == null || !body.contains(this.skippedRunId)) {
+            return body;
+        }
+        JsonObject request;
+        try {
+            request = new JsonParser().parse(body).getAsJsonObject();
+        } catch (RuntimeException e) {
+            return body;
+        }
+        if (!request.has("runId") || !request.get("runId").getAsString().equals(this.skippedRunId)
+                || !request.has("options")) {
+            return body;
+        }
+        request.getAsJsonObject("options").addProperty("build", this.skippedBuildCmd);
+        this.pendingRunId = this.skippedRunId;
+        this.pendingFingerprint = this.skippedFingerprint;
+        this.skippedRunId = null;
+        return APIFunction.gson().toJson(request);
+    }
+
+    /**
+     * Forget the last build, e.g., when the session is recreated without its build outputs.
+     */
+    synchronized void reset() {
+        this.builtFingerprint = null;
+        this.pendingRunId = null;
+        this.pendingFingerprint = null;
+    }
+
+    synchronized int getSkippedBuildCount() {
+        return this.skippedBuilds;
+    }
+
+    private String fingerprint(String buildCmd) {
+        MessageDigest digest = newDigest();
+        digest.update(buildCmd.getBytes(UTF8));
+        for (Map.Entry<String, String> e : this.uploadedDigests.entrySet()) {
+            digest.update((byte) 0);
+            digest.update(e.getKey().getBytes(UTF8));
+            digest.update((byte) 0);
+            digest.update(e.getValue().getBytes(UTF8));
+        }
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+}
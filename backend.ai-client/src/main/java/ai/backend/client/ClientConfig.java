@@ -1,11 +1,34 @@
 package ai.backend.client;
 
 import ai.backend.client.exceptions.ConfigurationException;
+import ai.backend.client.exceptions.NetworkFailureException;
+import okhttp3.ConnectionPool;
+import okhttp3.ConnectionSpec;
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
 
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.X509TrustManager;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ClientConfig {
+    private static final long WARM_UP_HOLD_MILLIS = 10000;
 
     private final String accessKey;
     private final String secretKey;
@@ -15,16 +38,216 @@ public class ClientConfig {
     private final String endPoint;
     private final String userAgent;
     private final String hostname;
+    private final SessionInfoCache sessionInfoCache;
+    private final SessionRegistry sessionRegistry;
+    private final ExecutionCache executionCache;
+    private final ResourceUsageRegistry resourceUsageRegistry;
+    private final boolean preferHttp2;
+    private final int warmUpConnections;
+    private final boolean compression;
+    private final int compressionThreshold;
+    private final ClientMetrics metrics;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final HttpClientFactory httpClientFactory;
+    private volatile OkHttpClient httpClient = null;
+    private final RequestHedger hedger;
+    private final EndpointPool endpointPool;
+    private final KeypairPool keypairPool;
+    private final long healthCheckIntervalMillis;
 
     public ClientConfig(Builder builder) {
-        accessKey = builder.accessKey;
-        secretKey = builder.secretKey;
+        List<Keypair> keypairs = new ArrayList<Keypair>();
+        if (builder.keypairs.isEmpty()) {
+            keypairs.add(new Keypair(builder.accessKey, builder.secretKey));
+        } else {
+            for (String[] entry : builder.keypairs) {
+                keypairs.add(new Keypair(entry[0], entry[1]));
+            }
+        }
+        keypairPool = new KeypairPool(keypairs, builder.keypairPolicy, builder.keypairCooldownMillis);
+        accessKey = keypairs.get(0).getAccessKey();
+        secretKey = keypairs.get(0).getSecretKey();
         apiVersion = builder.apiVersion;
         apiVersionMajor = builder.apiVersionMajor;
         hashType = builder.hashType;
-        endPoint = builder.endPoint;
         userAgent = builder.userAgent;
-        hostname = builder.hostname;
+        List<Endpoint> endpoints = new ArrayList<Endpoint>();
+        if (builder.endPoints.isEmpty()) {
+            endpoints.add(new Endpoint(builder.endPoint, builder.hostname));
+        } else {
+            for (String[] entry : builder.endPoints) {
+                endpoints.add(new Endpoint(entry[0], entry[1]));
+            }
+        }
+        endpointPool = new EndpointPool(endpoints, userAgent);
+        endPoint = endpoints.get(0).getUrl();
+        hostname = endpoints.get(0).getHostname();
+        sessionInfoCache = builder.sessionInfoCache;
+        sessionRegistry = builder.sessionRegistry;
+        executionCache = builder.executionCache;
+        resourceUsageRegistry = builder.resourceUsageRegistry;
+        preferHttp2 = builder.preferHttp2;
+        warmUpConnections = builder.warmUpConnections;
+        compression = builder.compression;
+        compressionThreshold = builder.compressionThreshold;
+        metrics = new ClientMetrics();
+        if (builder.executor != null) {
+            executor = builder.executor;
+            virtualThreads = false;
+        } else if (builder.virtualThreads && ClientExecutors.isVirtualThreadSupported()) {
+            executor = ClientExecutors.newVirtualThreadPerTaskExecutor();
+            virtualThreads = true;
+        } else {
+            executor = ClientExecutors.defaultExecutor();
+            virtualThreads = false;
+        }
+        boolean cleartextOnly = true;
+        for (Endpoint endpoint : endpoints) {
+            cleartextOnly &= endpoint.getUrl().regionMatches(true, 0, "http:", 0, 5);
+        }
+        httpClientFactory = new HttpClientFactory(builder, executor, cleartextOnly);
+        if (builder.hedgePercentile > 0) {
+            hedger = new RequestHedger(builder.hedgePercentile, builder.hedgeBudget, metrics);
+        } else {
+            hedger = null;
+        }
+        healthCheckIntervalMillis = builder.healthCheckIntervalMillis;
+    }
+
+    /**
+     * Holds a client with the default settings whose TLS context and trust manager are shared
+     * by the clients of all configurations, so that the system trust store is loaded only once.
+     */
+    private static class BaseHttpClientHolder {
+        static final OkHttpClient BASE = new OkHttpClient();
+    }
+
+    /**
+     * Keeps the HTTP client settings taken from the builder until the client is first used.
+     */
+    private static class HttpClientFactory {
+        private final Dispatcher dispatcher;
+        private final int maxRequestsPerHost;
+        private final int maxIdleConnections;
+        private final long keepAliveMillis;
+        private final boolean preferHttp2;
+        private final List<Interceptor> interceptors;
+        private final SSLSocketFactory sslSocketFactory;
+        private final X509TrustManager trustManager;
+        private final ExecutorService executor;
+        private final boolean cleartextOnly;
+
+        HttpClientFactory(Builder builder, ExecutorService executor, boolean cleartextOnly) {
+            this.dispatcher = builder.dispatcher;
+            this.maxRequestsPerHost = builder.maxRequestsPerHost;
+            this.maxIdleConnections = Math.max(builder.maxIdleConnections, builder.warmUpConnections);
+            this.keepAliveMillis = builder.keepAliveMillis;
+            this.preferHttp2 = builder.preferHttp2;
+            this.interceptors = new ArrayList<Interceptor>(builder.interceptors);
+            this.sslSocketFactory = builder.sslSocketFactory;
+            this.trustManager = builder.trustManager;
+            this.executor = executor;
+            this.cleartextOnly = cleartextOnly && builder.sslSocketFactory == null;
+        }
+
+        OkHttpClient create() {
+            Dispatcher dispatcher = this.dispatcher;
+            if (dispatcher == null) {
+                dispatcher = new Dispatcher(executor);
+                dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+            }
+            OkHttpClient.Builder clientBuilder;
+            if (cleartextOnly) {
+                // Without any TLS connection spec, OkHttp skips loading the system trust store,
+                // which dominates the startup cost when all endpoints are plain HTTP.
+                clientBuilder = new OkHttpClient.Builder()
+                        .connectionSpecs(Collections.singletonList(ConnectionSpec.CLEARTEXT));
+            } else {
+                clientBuilder = BaseHttpClientHolder.BASE.newBuilder();
+            }
+            clientBuilder
+                    .dispatcher(dispatcher)
+                    .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveMillis, TimeUnit.MILLISECONDS));
+            List<Protocol> protocols = new ArrayList<Protocol>();
+            if (preferHttp2) {
+                protocols.add(Protocol.HTTP_2);
+            }
+            protocols.add(Protocol.HTTP_1_1);
+            clientBuilder.protocols(protocols);
+            for (Interceptor interceptor : interceptors) {
+                clientBuilder.addInterceptor(interceptor);
+            }
+            if (sslSocketFactory != null) {
+                clientBuilder.sslSocketFactory(sslSocketFactory, trustManager);
+            }
+            return clientBuilder.build();
+        }
+    }
+
+    /**
+     * Pre-establish connections to the endpoints so that the first API call does not pay
+     * the DNS lookup, TCP and TLS handshake costs.
+     * It sends {@link #getWarmUpConnections()} concurrent unauthenticated requests to the root of each endpoint
+     * from dedicated threads, bypassing the per-host request limit of the dispatcher, and keeps each response
+     * open until all of them have arrived so that every request occupies its own connection.
+     * When the connection is negotiated as HTTP/2, the requests are multiplexed over a single connection.
+     *
+     * @return The number of connections in the pool after warming up.
+     * @throws NetworkFailureException if none of the warm-up requests succeeded
+     */
+    public int warmUp() throws NetworkFailureException {
+        List<Endpoint> endpoints = endpointPool.getEndpoints();
+        int count = warmUpConnections * endpoints.size();
+        final OkHttpClient client = getHttpClient();
+        final CountDownLatch arrived = new CountDownLatch(count);
+        final AtomicInteger succeeded = new AtomicInteger();
+        ExecutorService pool = ClientExecutors.newCachedDaemonPool("backend.ai-client-warmup");
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i = 0; i < count; i++) {
+            final Request request = new Request.Builder()
+                    .url(endpoints.get(i % endpoints.size()).getUrl() + "/")
+                    .header("User-Agent", userAgent)
+                    .build();
+            futures.add(pool.submit(new Runnable() {
+                @Override
+                public void run() {
+                    Response response = null;
+                    try {
+                        response = client.newCall(request).execute();
+                        succeeded.incrementAndGet();
+                    } catch (IOException e) {
+                        // Counted as a failure below.
+                    } finally {
+                        arrived.countDown();
+                    }
+                    if (response != null) {
+                        try {
+                            // An HTTP/1.1 connection is returned to the pool when the response is closed.
+                            arrived.await(WARM_UP_HOLD_MILLIS, TimeUnit.MILLISECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            response.close();
+                        }
+                    }
+                }
+            }));
+        }
+        pool.shutdown();
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // The tasks do not throw.
+        }
+        if (succeeded.get() == 0) {
+            throw new NetworkFailureException("Could not connect to " + endPoint);
+        }
+        return client.connectionPool().connectionCount();
     }
 
     public String getAccessKey() {
@@ -35,10 +258,52 @@ public class ClientConfig {
         return secretKey;
     }
 
+    /**
+     * Returns the URL of the first configured endpoint.
+     */
     public String getEndPoint() {
         return endPoint;
     }
 
+    /**
+     * Returns the keypairs which new sessions are spread across.
+     */
+    public KeypairPool getKeypairPool() {
+        return keypairPool;
+    }
+
+    /**
+     * Returns the endpoints which new sessions are balanced across.
+     */
+    public EndpointPool getEndpointPool() {
+        return endpointPool;
+    }
+
+    /**
+     * Start the background health probing of the endpoints if there are multiple ones.
+     * It is called when an API object is first created with this configuration, so that configurations
+     * which are never used do not schedule any probes. It does nothing after {@link #close()}.
+     */
+    void startHealthChecks() {
+        if (endpointPool.getEndpoints().size() > 1 && healthCheckIntervalMillis > 0) {
+            endpointPool.startProbing(getHttpClient(), healthCheckIntervalMillis);
+        }
+    }
+
+    /**
+     * Release the background resources of this configuration.
+     * It stops the health probing of the endpoints, which otherwise runs on the shared timer for the lifetime
+     * of the JVM once a configuration with multiple endpoints is used, and evicts the idle pooled connections.
+     * The configuration must not be used for new API objects afterwards.
+     */
+    public void close() {
+        endpointPool.close();
+        OkHttpClient client = httpClient;
+        if (client != null) {
+            client.connectionPool().evictAll();
+        }
+    }
+
     public String getApiVersion() {
         return apiVersion;
     }
@@ -59,6 +324,104 @@ public class ClientConfig {
         return hashType;
     }
 
+    /**
+     * Returns the session metadata cache shared by kernels using this configuration, or null if disabled.
+     */
+    public SessionInfoCache getSessionInfoCache() {
+        return sessionInfoCache;
+    }
+
+    /**
+     * Returns the registry tracking kernels created with this configuration, or null if disabled.
+     */
+    public SessionRegistry getSessionRegistry() {
+        return sessionRegistry;
+    }
+
+    /**
+     * Returns the cache of finished query results shared by kernels using this configuration, or null if disabled.
+     */
+    public ExecutionCache getExecutionCache() {
+        return executionCache;
+    }
+
+    /**
+     * Returns the registry aggregating resource usage per kernel type, or null if disabled.
+     */
+    public ResourceUsageRegistry getResourceUsageRegistry() {
+        return resourceUsageRegistry;
+    }
+
+    public boolean isPreferHttp2() {
+        return preferHttp2;
+    }
+
+    public int getWarmUpConnections() {
+        return warmUpConnections;
+    }
+
+    public boolean isCompression() {
+        return compression;
+    }
+
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * Returns the metrics collected by API objects using this configuration.
+     */
+    public ClientMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the executor used for asynchronous client I/O and background tasks.
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Returns true if the executor runs each task on a new virtual thread.
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Run a blocking client call on the configured executor.
+     * With {@link Builder#virtualThreads(boolean)}, each call runs on its own virtual thread.
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        return executor.submit(task);
+    }
+
+    /**
+     * Returns the hedging state for idempotent requests, or null if hedging is disabled.
+     */
+    RequestHedger getHedger() {
+        return hedger;
+    }
+
+    /**
+     * Returns the HTTP client shared by all API objects using this configuration.
+     * It is created on first use, so building a configuration does not pay for the HTTP stack setup.
+     */
+    public OkHttpClient getHttpClient() {
+        OkHttpClient client = httpClient;
+        if (client == null) {
+            synchronized (this) {
+                client = httpClient;
+                if (client == null) {
+                    client = httpClientFactory.create();
+                    httpClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
     public static String getClientVersion() {
         String implVersion = ClientConfig.class.getPackage().getImplementationVersion();
         if (implVersion == null) {
@@ -78,6 +441,30 @@ public class ClientConfig {
         private String endPoint = "https://api.backend.ai";
         private String userAgent = "BackendAI Client for Java " + getClientVersion();
         private String hostname = "api.backend.ai";
+        private SessionInfoCache sessionInfoCache = null;
+        private SessionRegistry sessionRegistry = null;
+        private ExecutionCache executionCache = null;
+        private ResourceUsageRegistry resourceUsageRegistry = null;
+        private boolean preferHttp2 = true;
+        private int warmUpConnections = 1;
+        private int maxIdleConnections = 5;
+        private long keepAliveMillis = 5 * 60 * 1000;
+        private int maxRequestsPerHost = 5;
+        private SSLSocketFactory sslSocketFactory = null;
+        private X509TrustManager trustManager = null;
+        private boolean compression = false;
+        private int compressionThreshold = 1024;
+        private ExecutorService executor = null;
+        private Dispatcher dispatcher = null;
+        private boolean virtualThreads = false;
+        private double hedgePercentile = 0;
+        private double hedgeBudget = 0.1;
+        private final List<String[]> endPoints = new ArrayList<String[]>();
+        private long healthCheckIntervalMillis = 10 * 1000;
+        private final List<String[]> keypairs = new ArrayList<String[]>();
+        private KeypairPool.Policy keypairPolicy = KeypairPool.Policy.LEAST_LOADED;
+        private long keypairCooldownMillis = 60 * 1000;
+        private final List<Interceptor> interceptors = new ArrayList<Interceptor>();
 
         /* Methods for chained creation. */
         public Builder accessKey(String val) {
@@ -90,25 +477,234 @@ public class ClientConfig {
             return this;
         }
 
+        /**
+         * Add a keypair which new sessions may be created with.
+         * When one or more keypairs are added, they replace {@link #accessKey(String)} and {@link #secretKey(String)}.
+         */
+        public Builder addKeypair(String accessKey, String secretKey) {
+            keypairs.add(new String[] { accessKey, secretKey });
+            return this;
+        }
+
+        /**
+         * How new sessions are assigned to keypairs (default {@link KeypairPool.Policy#LEAST_LOADED}).
+         */
+        public Builder keypairPolicy(KeypairPool.Policy val) {
+            keypairPolicy = val;
+            return this;
+        }
+
+        /**
+         * How long a keypair stays out of rotation after receiving 429 (Too Many Requests) (default 60 seconds).
+         */
+        public Builder keypairCooldownMillis(long val) {
+            keypairCooldownMillis = val;
+            return this;
+        }
+
+        /**
+         * Add an application interceptor to the HTTP client, which sees each request after it is signed.
+         *
+         * @see RecordReplayInterceptor
+         */
+        public Builder addInterceptor(Interceptor val) {
+            interceptors.add(val);
+            return this;
+        }
+
         public Builder endPoint(String val) {
             endPoint = val;
             return this;
         }
 
+        /**
+         * Add a manager endpoint with the hostname used to sign requests to it.
+         * When one or more endpoints are added, they replace {@link #endPoint(String)}, and new sessions are
+         * placed on the healthy endpoint with the lowest latency.
+         */
+        public Builder addEndPoint(String url, String hostname) {
+            endPoints.add(new String[] { url, hostname });
+            return this;
+        }
+
+        /**
+         * The interval of background health probes when there are multiple endpoints (default 10 seconds).
+         * Zero disables probing, so unhealthy endpoints are not used again.
+         * Probing starts when the configuration is first used and runs until {@link ClientConfig#close()}.
+         */
+        public Builder healthCheckIntervalMillis(long val) {
+            healthCheckIntervalMillis = val;
+            return this;
+        }
+
+        public Builder sessionInfoCache(SessionInfoCache val) {
+            sessionInfoCache = val;
+            return this;
+        }
+
+        public Builder sessionRegistry(SessionRegistry val) {
+            sessionRegistry = val;
+            return this;
+        }
+
+        /**
+         * Enable memoization of query-mode executions which finish in their first request.
+         * Use it only when the executed code is deterministic.
+         */
+        public Builder executionCache(ExecutionCache val) {
+            executionCache = val;
+            return this;
+        }
+
+        /**
+         * Aggregate the resource usage of destroyed sessions and of executions per kernel type.
+         */
+        public Builder resourceUsageRegistry(ResourceUsageRegistry val) {
+            resourceUsageRegistry = val;
+            return this;
+        }
+
+        /**
+         * If true (default), HTTP/2 is negotiated via ALPN on TLS connections so that
+         * concurrent requests are multiplexed over a few connections.
+         * If false, only HTTP/1.1 is used.
+         */
+        public Builder preferHttp2(boolean val) {
+            preferHttp2 = val;
+            return this;
+        }
+
+        /**
+         * The number of connections pre-established to each endpoint by {@link ClientConfig#warmUp()} (default 1).
+         * It is not limited by {@link #maxRequestsPerHost(int)}.
+         */
+        public Builder warmUpConnections(int val) {
+            warmUpConnections = val;
+            return this;
+        }
+
+        public Builder maxIdleConnections(int val) {
+            maxIdleConnections = val;
+            return this;
+        }
+
+        public Builder keepAliveMillis(long val) {
+            keepAliveMillis = val;
+            return this;
+        }
+
+        /**
+         * The maximum number of concurrent asynchronous requests to the endpoint.
+         */
+        public Builder maxRequestsPerHost(int val) {
+            maxRequestsPerHost = val;
+            return this;
+        }
+
+        public Builder sslSocketFactory(SSLSocketFactory factory, X509TrustManager manager) {
+            sslSocketFactory = factory;
+            trustManager = manager;
+            return this;
+        }
+
+        /**
+         * If true, JSON request bodies of at least {@link #compressionThreshold(int)} bytes are sent gzip-compressed
+         * and gzip-encoded responses are accepted. The results are recorded in {@link ClientMetrics}.
+         */
+        public Builder compression(boolean val) {
+            compression = val;
+            return this;
+        }
+
+        public Builder compressionThreshold(int val) {
+            compressionThreshold = val;
+            return this;
+        }
+
+        /**
+         * The executor used for asynchronous HTTP calls, WebSocket callbacks and background tasks
+         * of the client. The caller owns it and must shut it down after use.
+         * If not set, a shared pool of daemon threads is used.
+         */
+        public Builder executor(ExecutorService val) {
+            executor = val;
+            return this;
+        }
+
+        /**
+         * The OkHttp dispatcher used for asynchronous calls.
+         * If set, {@link #maxRequestsPerHost(int)} is ignored and the dispatcher keeps its own executor.
+         */
+        public Builder dispatcher(Dispatcher val) {
+            dispatcher = val;
+            return this;
+        }
+
+        /**
+         * If true and no executor is given, each task runs on a new virtual thread when the JVM supports it.
+         * Otherwise the default executor is used.
+         */
+        public Builder virtualThreads(boolean val) {
+            virtualThreads = val;
+            return this;
+        }
+
+        /**
+         * Enable hedging of idempotent GET requests.
+         * If no response has arrived within the given percentile of the recent GET latency,
+         * a second signed request is sent on another connection and the first answer wins.
+         * Zero (default) disables hedging.
+         *
+         * @param val A percentile between 0 and 100 (e.g., 95).
+         */
+        public Builder hedgePercentile(double val) {
+            hedgePercentile = val;
+            return this;
+        }
+
+        /**
+         * The maximum ratio of hedges to GET requests (default 0.1).
+         */
+        public Builder hedgeBudget(double val) {
+            hedgeBudget = val;
+            return this;
+        }
+
         public ClientConfig build() throws ConfigurationException{
 
-            if (accessKey == null) {
-                throw new ConfigurationException("No AccessKey");
+            if (keypairs.isEmpty()) {
+                if (accessKey == null) {
+                    throw new ConfigurationException("No AccessKey");
+                }
+                if (secretKey == null) {
+                    throw new ConfigurationException("No SecretKey");
+                }
             }
-            if (secretKey == null) {
-                throw new ConfigurationException("No SecretKey");
+            for (String[] entry : keypairs) {
+                if (entry[0] == null || entry[1] == null) {
+                    throw new ConfigurationException("Incomplete keypair");
+                }
+            }
+            if (keypairPolicy == null || keypairCooldownMillis < 0) {
+                throw new ConfigurationException("Invalid keypair settings");
             }
             try {
                 String url = String.format("%s/%s", endPoint, apiVersionMajor);
                 new URL(url);
+                for (String[] entry : endPoints) {
+                    new URL(String.format("%s/%s", entry[0], apiVersionMajor));
+                    if (entry[1] == null || entry[1].isEmpty()) {
+                        throw new ConfigurationException("No hostname for endpoint " + entry[0]);
+                    }
+                }
             } catch (MalformedURLException e) {
                 throw new ConfigurationException("Malformed endpoint URL");
             }
+            if (warmUpConnections <= 0 || maxIdleConnections < 0 || keepAliveMillis <= 0 || maxRequestsPerHost <= 0
+                    || compressionThreshold < 0 || hedgePercentile < 0 || hedgePercentile > 100 || hedgeBudget < 0
+                    || healthCheckIntervalMillis < 0) {
+                throw new ConfigurationException("Invalid connection settings");
+            }
 
             return new ClientConfig(this);
         }
@@ -0,0 +1,107 @@
+package ai.backend.client;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Factories of executors used for client I/O.
+ */
+public final class ClientExecutors {
+    private static final Method NEW_VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutorFactory();
+
+    private ClientExecutors() {
+    }
+
+    private static Method findVirtualThreadExecutorFactory() {
+        try {
+            return java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns true if the running JVM supports virtual threads (Java 21 or later).
+     */
+    public static boolean isVirtualThreadSupported() {
+        return NEW_VIRTUAL_THREAD_EXECUTOR != null;
+    }
+
+    /**
+     * Create an executor that runs each task on a new virtual thread.
+     *
+     * @throws UnsupportedOperationException if the running JVM does not support virtual threads
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (NEW_VIRTUAL_THREAD_EXECUTOR == null) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by this JVM.");
+        }
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null);
+        } catch (Exception e) {
+            throw new UnsupportedOperationException("Could not create a virtual thread executor.", e);
+        }
+    }
+
+    /**
+     * Create an unbounded pool of daemon platform threads which are reclaimed after 60 seconds of idleness.
+     *
+     * @param name The name prefix of the threads.
+     */
+    public static ExecutorService newCachedDaemonPool(final String name) {
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Returns the executor shared by configurations which do not specify one.
+     */
+    static ExecutorService defaultExecutor() {
+        return DefaultHolder.EXECUTOR;
+    }
+
+    /**
+     * Returns the single daemon thread which cancels requests whose deadline has expired.
+     */
+    static ScheduledExecutorService timer() {
+        return TimerHolder.TIMER;
+    }
+
+    private static class DefaultHolder {
+        static final ExecutorService EXECUTOR = newCachedDaemonPool("backend.ai-client");
+    }
+
+    private static class TimerHolder {
+        static final ScheduledExecutorService TIMER = newTimer();
+
+        private static ScheduledExecutorService newTimer() {
+            ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "backend.ai-client-timer");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            // Most deadlines are met, so drop cancelled timeouts instead of keeping them until they expire.
+            timer.setRemoveOnCancelPolicy(true);
+            return timer;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package ai.backend.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters collected by API objects sharing the same {@link ClientConfig}.
+ * All methods are thread-safe.
+ */
+public class ClientMetrics {
+    private final AtomicLong compressedRequests = new AtomicLong();
+    private final AtomicLong requestRawBytes = new AtomicLong();
+    private final AtomicLong requestCompressedBytes = new AtomicLong();
+    private final AtomicLong requestCompressionNanos = new AtomicLong();
+    private final AtomicLong compressedResponses = new AtomicLong();
+    private final AtomicLong responseRawBytes = new AtomicLong();
+    private final AtomicLong responseCompressedBytes = new AtomicLong();
+    private final AtomicLong responseDecompressionNanos = new AtomicLong();
+    private final AtomicLong recoveries = new AtomicLong();
+    private final AtomicLong failedRecoveries = new AtomicLong();
+    private final AtomicLong recoveryNanos = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private final AtomicLong hedgeBudgetExhausted = new AtomicLong();
+
+    void recordRequestCompression(long rawBytes, long compressedBytes, long cpuNanos) {
+        compressedRequests.incrementAndGet();
+        requestRawBytes.addAndGet(rawBytes);
+        requestCompressedBytes.addAndGet(compressedBytes);
+        requestCompressionNanos.addAndGet(cpuNanos);
+    }
+
+    void recordResponseDecompression(long rawBytes, long compressedBytes, long cpuNanos) {
+        compressedResponses.incrementAndGet();
+        responseRawBytes.addAndGet(rawBytes);
+        responseCompressedBytes.addAndGet(compressedBytes);
+        responseDecompressionNanos.addAndGet(cpuNanos);
+    }
+
+    void recordRecovery(long nanos, boolean succeeded) {
+        if (succeeded) {
+            recoveries.incrementAndGet();
+        } else {
+            failedRecoveries.incrementAndGet();
+        }
+        recoveryNanos.addAndGet(nanos);
+    }
+
+    void recordHedge() {
+        hedges.incrementAndGet();
+    }
+
+    void recordHedgeWin() {
+        hedgeWins.incrementAndGet();
+    }
+
+    void recordHedgeBudgetExhausted() {
+        hedgeBudgetExhausted.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of request bodies sent gzip-compressed.
+     */
+    public long getCompressedRequests() {
+        return compressedRequests.get();
+    }
+
+    public long getRequestRawBytes() {
+        return requestRawBytes.get();
+    }
+
+    public long getRequestCompressedBytes() {
+        return requestCompressedBytes.get();
+    }
+
+    /**
+     * Returns the CPU time spent on compressing request bodies in nanoseconds.
+     */
+    public long getRequestCompressionNanos() {
+        return requestCompressionNanos.get();
+    }
+
+    /**
+     * Returns the ratio of uncompressed to compressed request bytes, or 0 if nothing was compressed.
+     */
+    public double getRequestCompressionRatio() {
+        return ratio(requestRawBytes.get(), requestCompressedBytes.get());
+    }
+
+    /**
+     * Returns the number of gzip-encoded response bodies read.
+     */
+    public long getCompressedResponses() {
+        return compressedResponses.get();
+    }
+
+    public long getResponseRawBytes() {
+        return responseRawBytes.get();
+    }
+
+    public long getResponseCompressedBytes() {
+        return responseCompressedBytes.get();
+    }
+
+    /**
+     * Returns the CPU time spent on decompressing response bodies in nanoseconds.
+     */
+    public long getResponseDecompressionNanos() {
+        return responseDecompressionNanos.get();
+    }
+
+    /**
+     * Returns the ratio of uncompressed to compressed response bytes, or 0 if nothing was decompressed.
+     */
+    public double getResponseCompressionRatio() {
+        return ratio(responseRawBytes.get(), responseCompressedBytes.get());
+    }
+
+    /**
+     * Returns the number of expired sessions recreated by kernels with recovery enabled.
+     */
+    public long getRecoveries() {
+        return recoveries.get();
+    }
+
+    public long getFailedRecoveries() {
+        return failedRecoveries.get();
+    }
+
+    /**
+     * Returns the total time spent on session recovery, including failed attempts, in nanoseconds.
+     */
+    public long getRecoveryNanos() {
+        return recoveryNanos.get();
+    }
+
+    /**
+     * Returns the number of extra requests sent as hedges.
+     */
+    public long getHedges() {
+        return hedges.get();
+    }
+
+    /**
+     * Returns the number of hedges answered before the original request.
+     */
+    public long getHedgeWins() {
+        return hedgeWins.get();
+    }
+
+    /**
+     * Returns the number of times a hedge was due but skipped because the budget was exhausted.
+     */
+    public long getHedgeBudgetExhausted() {
+        return hedgeBudgetExhausted.get();
+    }
+
+    private static double ratio(long raw, long compressed) {
+        return compressed == 0 ? 0 : raw / (double) compressed;
+    }
+}
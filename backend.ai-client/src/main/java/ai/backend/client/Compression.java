@@ -0,0 +1,134 @@
+package ai.backend.client;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ForwardingSource;
+import okio.GzipSink;
+import okio.GzipSource;
+import okio.Okio;
+import okio.Source;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Gzip encoding of request bodies and streaming decoding of response bodies.
+ */
+final class Compression {
+    static final String GZIP = "gzip";
+
+    private Compression() {
+    }
+
+    /**
+     * Compress the given request body.
+     * The returned body has a known length so that it can be sent with a Content-Length header.
+     */
+    static RequestBody gzip(RequestBody body, ClientMetrics metrics) throws IOException {
+        Buffer raw = new Buffer();
+        body.writeTo(raw);
+        long rawSize = raw.size();
+        long started = cpuTime();
+        Buffer compressed = new Buffer();
+        BufferedSink sink = Okio.buffer(new GzipSink(compressed));
+        sink.writeAll(raw);
+        sink.close();
+        metrics.recordRequestCompression(rawSize, compressed.size(), cpuTime() - started);
+        return RequestBody.create(body.contentType(), compressed.readByteString());
+    }
+
+    /**
+     * Wrap a gzip-encoded response so that its body is decompressed while being read.
+     * Responses without gzip encoding are returned as-is.
+     */
+    static Response decompress(Response response, ClientMetrics metrics) {
+        ResponseBody body = response.body();
+        if (body == null || !GZIP.equalsIgnoreCase(response.header("Content-Encoding"))) {
+            return response;
+        }
+        MediaType contentType = body.contentType();
+        Source source = new MeteredGzipSource(body.source(), metrics);
+        return response.newBuilder()
+                .removeHeader("Content-Encoding")
+                .removeHeader("Content-Length")
+                .body(ResponseBody.create(contentType, -1L, Okio.buffer(source)))
+                .build();
+    }
+
+    private static long cpuTime() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean.isCurrentThreadCpuTimeSupported()) {
+            return bean.getCurrentThreadCpuTime();
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Counts compressed and decompressed bytes and CPU time, and records them once the body is exhausted or closed.
+     */
+    private static class MeteredGzipSource extends ForwardingSource {
+        private final CountingSource compressed;
+        private final ClientMetrics metrics;
+        private long rawBytes = 0;
+        private long cpuNanos = 0;
+        private boolean recorded = false;
+
+        MeteredGzipSource(Source source, ClientMetrics metrics) {
+            this(new CountingSource(source), metrics);
+        }
+
+        private MeteredGzipSource(CountingSource compressed, ClientMetrics metrics) {
+            super(new GzipSource(compressed));
+            this.compressed = compressed;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            long started = cpuTime();
+            long n = super.read(sink, byteCount);
+            cpuNanos += cpuTime() - started;
+            if (n == -1) {
+                record();
+            } else {
+                rawBytes += n;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            record();
+            super.close();
+        }
+
+        private void record() {
+            if (!recorded) {
+                recorded = true;
+                metrics.recordResponseDecompression(rawBytes, compressed.count, cpuNanos);
+            }
+        }
+    }
+
+    private static class CountingSource extends ForwardingSource {
+        long count = 0;
+
+        CountingSource(Source delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            long n = super.read(sink, byteCount);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package ai.backend.client;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An absolute point in time by which an operation must complete.
+ *
+ * The same deadline object may be passed to a series of calls (e.g., the continuation loop of a run)
+ * so that they share a single time budget. Requests still in flight when the deadline expires are cancelled
+ * and fail with {@link ai.backend.client.exceptions.DeadlineExceededException}.
+ */
+public final class Deadline {
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Create a deadline which expires after the given duration from now.
+     */
+    public static Deadline after(long duration, TimeUnit unit) {
+        return new Deadline(System.nanoTime() + unit.toNanos(duration));
+    }
+
+    /**
+     * Returns the remaining time in the given unit, or zero if the deadline has expired.
+     */
+    public long timeRemaining(TimeUnit unit) {
+        long remaining = this.deadlineNanos - System.nanoTime();
+        return remaining > 0 ? unit.convert(remaining, TimeUnit.NANOSECONDS) : 0;
+    }
+
+    public boolean isExpired() {
+        return this.deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Deadline(%d ms remaining)", timeRemaining(TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,76 @@
+package ai.backend.client;
+
+/**
+ * A manager instance reachable at a URL, with the hostname used to sign requests to it.
+ *
+ * It tracks an exponentially weighted moving average (EWMA) of the response latency and whether the
+ * endpoint is currently considered healthy.
+ */
+public class Endpoint {
+    private static final double ALPHA = 0.3;
+
+    private final String url;
+    private final String hostname;
+    private double latencyNanos = -1;
+    private boolean healthy = true;
+    private int consecutiveFailures = 0;
+
+    Endpoint(String url, String hostname) {
+        this.url = url;
+        this.hostname = hostname;
+    }
+
+    public String getUrl() {
+        return this.url;
+    }
+
+    public String getHostname() {
+        return this.hostname;
+    }
+
+    /**
+     * Returns the EWMA latency in milliseconds, or -1 if no response has been measured yet.
+     */
+    public synchronized double getLatencyMillis() {
+        return this.latencyNanos < 0 ? -1 : this.latencyNanos / 1e6;
+    }
+
+    public synchronized boolean isHealthy() {
+        return this.healthy;
+    }
+
+    synchronized double getLatencyNanos() {
+        return this.latencyNanos;
+    }
+
+    /**
+     * Record a response from this endpoint, which also marks it healthy.
+     */
+    synchronized void recordSuccess(long nanos) {
+        if (this.latencyNanos < 0) {
+            this.latencyNanos = nanos;
+        } else {
+            this.latencyNanos = ALPHA * nanos + (1 - ALPHA) * this.latencyNanos;
+        }
+        this.consecutiveFailures = 0;
+        this.healthy = true;
+    }
+
+    /**
+     * Record a failed connection or an unavailable response.
+     *
+     * @param threshold The number of consecutive failures after which the endpoint is marked unhealthy.
+     */
+    synchronized void recordFailure(int threshold) {
+        this.consecutiveFailures++;
+        if (this.consecutiveFailures >= threshold) {
+            this.healthy = false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Endpoint(%s, host=%s, healthy=%s, latency=%.1f ms)",
+                this.url, this.hostname, isHealthy(), getLatencyMillis());
+    }
+}
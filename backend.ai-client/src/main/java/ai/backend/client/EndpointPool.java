@@ -0,0 +1,130 @@
+package ai.backend.client;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The set of manager endpoints a configuration may send requests to.
+ *
+ * New sessions are placed on the healthy endpoint with the lowest EWMA latency, and each kernel keeps using
+ * the endpoint where its session was created.
+ * Endpoints which failed {@link #FAILURE_THRESHOLD} times in a row are skipped until a background health probe
+ * gets a response from them again. Probing runs only when there are two or more endpoints.
+ */
+public class EndpointPool {
+    static final int FAILURE_THRESHOLD = 2;
+
+    private final List<Endpoint> endpoints;
+    private final String userAgent;
+    private ScheduledFuture<?> prober = null;
+    private boolean closed = false;
+
+    EndpointPool(List<Endpoint> endpoints, String userAgent) {
+        this.endpoints = Collections.unmodifiableList(new ArrayList<Endpoint>(endpoints));
+        this.userAgent = userAgent;
+    }
+
+    public List<Endpoint> getEndpoints() {
+        return this.endpoints;
+    }
+
+    /**
+     * Returns the healthy endpoint with the lowest EWMA latency.
+     * Endpoints without any measurement are preferred so that every endpoint gets measured.
+     * If all endpoints are unhealthy, the first one is returned.
+     */
+    public Endpoint select() {
+        Endpoint best = failover(Collections.<Endpoint>emptySet());
+        return best != null ? best : this.endpoints.get(0);
+    }
+
+    /**
+     * Returns the healthy endpoint with the lowest EWMA latency except the given ones, or null if there is none.
+     */
+    Endpoint failover(Collection<Endpoint> excluded) {
+        Endpoint best = null;
+        double bestLatency = Double.MAX_VALUE;
+        for (Endpoint endpoint : this.endpoints) {
+            if (excluded.contains(endpoint) || !endpoint.isHealthy()) {
+                continue;
+            }
+            double latency = endpoint.getLatencyNanos();
+            if (latency < bestLatency) {
+                best = endpoint;
+                bestLatency = latency;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Start probing all endpoints periodically.
+     * Probes are sent asynchronously so that the shared timer thread is never blocked.
+     */
+    synchronized void startProbing(final OkHttpClient client, long intervalMillis) {
+        if (this.closed || this.prober != null || this.endpoints.size() < 2 || intervalMillis <= 0) {
+            return;
+        }
+        this.prober = ClientExecutors.timer().scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                probeAll(client);
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Send an unauthenticated request to the root of each endpoint and update its health and latency.
+     */
+    void probeAll(OkHttpClient client) {
+        for (final Endpoint endpoint : this.endpoints) {
+            Request request = new Request.Builder()
+                    .url(endpoint.getUrl() + "/")
+                    .header("User-Agent", this.userAgent)
+                    .build();
+            final long started = System.nanoTime();
+            client.newCall(request).enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    endpoint.recordFailure(FAILURE_THRESHOLD);
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    response.close();
+                    if (response.code() >= 500) {
+                        endpoint.recordFailure(FAILURE_THRESHOLD);
+                    } else {
+                        endpoint.recordSuccess(System.nanoTime() - started);
+                    }
+                }
+            });
+        }
+    }
+
+    synchronized boolean isProbing() {
+        return this.prober != null;
+    }
+
+    /**
+     * Stop the background health probing. It is not started again afterwards.
+     */
+    public synchronized void close() {
+        this.closed = true;
+        if (this.prober != null) {
+            this.prober.cancel(false);
+            this.prober = null;
+        }
+    }
+}
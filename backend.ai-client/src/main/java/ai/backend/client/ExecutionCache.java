@@ -0,0 +1,204 @@
+package ai.backend.client;
+
+import com.google.gson.JsonObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of finished query-mode execution results keyed by kernel type, code and options.
+ *
+ * Only results of runs which finished within their first request are stored, so a cache hit replays
+ * exactly what the kernel returned without any round trip. It should be enabled only for deterministic code
+ * such as reference solutions and checker scripts; use {@link Kernel#executeUncached} to bypass it.
+ *
+ * The in-memory tier is a size-bounded LRU. With a disk file, results evicted from memory are still served from
+ * a memory-mapped log which also survives restarts. Entries in both tiers expire after the configured TTL.
+ * A single cache may be shared by all kernels created with the same {@link ClientConfig}.
+ * All methods are thread-safe.
+ */
+public class ExecutionCache {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final long ttlMillis;
+    private final int maxSize;
+    private final LinkedHashMap<String, CacheEntry> entries;
+    private final MappedResultStore disk;
+    private long hitCount = 0;
+    private long diskHitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+
+    /**
+     * Create a memory-only cache.
+     *
+     * @param ttlMillis How long an entry stays valid after it is stored, in milliseconds.
+     * @param maxSize The maximum number of entries in memory. The least recently used entry is evicted when exceeded.
+     */
+    public ExecutionCache(long ttlMillis, int maxSize) {
+        this(ttlMillis, maxSize, null);
+    }
+
+    private ExecutionCache(long ttlMillis, final int maxSize, MappedResultStore disk) {
+        if (ttlMillis <= 0 || maxSize <= 0) {
+            throw new IllegalArgumentException("ttlMillis and maxSize must be positive.");
+        }
+        this.ttlMillis = ttlMillis;
+        this.maxSize = maxSize;
+        this.disk = disk;
+        this.entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                if (size() > ExecutionCache.this.maxSize) {
+                    evictionCount++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Create a cache backed by a memory-mapped file in addition to the in-memory LRU.
+     * Valid entries already in the file are loaded, so results are reused across process restarts.
+     *
+     * @param ttlMillis How long an entry stays valid after it is stored, in milliseconds.
+     * @param maxSize The maximum number of entries in memory.
+     * @param diskFile The file to map. It is created if it does not exist.
+     * @param diskCapacity The size of the file in bytes. When it fills up, the live entries are compacted
+     *                     and the oldest ones are dropped if they still do not fit.
+     * @throws IOException if the file cannot be mapped
+     */
+    public ExecutionCache(long ttlMillis, int maxSize, File diskFile, int diskCapacity) throws IOException {
+        this(ttlMillis, maxSize, new MappedResultStore(diskFile, diskCapacity));
+    }
+
+    /**
+     * Returns the cache key of a query: a SHA-256 digest of the kernel type, code and options.
+     */
+    static String keyOf(String kernelType, String code, JsonObject opts) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        String material = kernelType + "\u0000" + code + "\u0000" + (opts != null ? APIFunction.gson().toJson(opts) : "");
+        byte[] hash = digest.digest(material.getBytes(UTF8));
+        StringBuilder sb = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            sb.append(String.format("%02x", b & 0xff));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the cached response body, or null if there is no valid entry.
+     */
+    synchronized String get(String key) {
+        CacheEntry entry = entries.get(key);
+        if (entry != null && entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(key);
+            entry = null;
+        }
+        if (entry != null) {
+            hitCount++;
+            return entry.response;
+        }
+        if (disk != null) {
+            String response = disk.get(key);
+            if (response != null) {
+                diskHitCount++;
+                entries.put(key, new CacheEntry(response, disk.expiresAt(key)));
+                return response;
+            }
+        }
+        missCount++;
+        return null;
+    }
+
+    synchronized void put(String key, String response) {
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        entries.put(key, new CacheEntry(response, expiresAt));
+        if (disk != null) {
+            disk.put(key, response, expiresAt);
+        }
+    }
+
+    /**
+     * Remove the cached result of the given query from both tiers.
+     */
+    public synchronized void invalidate(String kernelType, String code, JsonObject opts) {
+        String key = keyOf(kernelType, code, opts);
+        entries.remove(key);
+        if (disk != null) {
+            disk.remove(key);
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        if (disk != null) {
+            disk.clear();
+        }
+    }
+
+    /**
+     * Flush the disk tier and release the file. The cache must not be used afterwards if it has a disk tier.
+     */
+    public synchronized void close() throws IOException {
+        if (disk != null) {
+            disk.close();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized int diskSize() {
+        return disk != null ? disk.size() : 0;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of hits served by the disk tier after missing the in-memory tier.
+     */
+    public synchronized long getDiskHitCount() {
+        return diskHitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    private static class CacheEntry {
+        final String response;
+        final long expiresAt;
+
+        CacheEntry(String response, long expiresAt) {
+            this.response = response;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package ai.backend.client;
+
+import ai.backend.client.exceptions.BackendClientException;
+import ai.backend.client.exceptions.InvalidParametersException;
+import ai.backend.client.values.ConsoleChunk;
+import ai.backend.client.values.ExecutionEvent;
+import ai.backend.client.values.ExecutionMode;
+import ai.backend.client.values.ExecutionResult;
+import ai.backend.client.values.RunStatus;
+import ai.backend.client.values.StatusChange;
+import com.google.gson.JsonObject;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A Reactive Streams publisher of the console outputs and status transitions of a single run.
+ *
+ * The next continuation is requested from the manager only when all events of the previous response
+ * have been delivered and the subscriber has signaled more demand, so a slow subscriber naturally throttles
+ * the run without blocking any thread.
+ * When the run waits for user input, no further request is made until {@link #provideInput(String)} is called.
+ * Cancelling the subscription before the run finishes sends {@link Kernel#interrupt()}.
+ *
+ * This publisher is unicast: it accepts only one subscriber.
+ */
+public class ExecutionPublisher implements Publisher<ExecutionEvent> {
+    private final Kernel kernel;
+    private final String runId;
+    private final Deadline deadline;
+    private final AtomicBoolean subscribed = new AtomicBoolean(false);
+    private final ConcurrentLinkedQueue<ExecutionEvent> buffer = new ConcurrentLinkedQueue<ExecutionEvent>();
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+    private Subscriber<? super ExecutionEvent> subscriber;
+
+    // The fields below are guarded by the drain loop or handed over through the volatile flags.
+    private ExecutionMode nextMode;
+    private String nextCode;
+    private JsonObject opts;
+    private RunStatus lastStatus = null;
+    private volatile boolean fetching = false;
+    private volatile boolean awaitingInput = false;
+    private volatile boolean finished = false;
+    private volatile boolean cancelled = false;
+    private volatile boolean terminated = false;
+    private volatile Throwable error = null;
+    private volatile Throwable violation = null;
+
+    ExecutionPublisher(Kernel kernel, ExecutionMode mode, String runId, String code, JsonObject opts,
+                       Deadline deadline) {
+        if (runId.length() < 8 || runId.length() > 64) {
+            throw new InvalidParametersException("runId is too short or too long.");
+        }
+        this.kernel = kernel;
+        this.runId = runId;
+        this.deadline = deadline;
+        this.nextMode = mode;
+        this.nextCode = code;
+        this.opts = opts;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super ExecutionEvent> s) {
+        if (s == null) {
+            throw new NullPointerException("Subscriber must not be null.");
+        }
+        if (!this.subscribed.compareAndSet(false, true)) {
+            s.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            s.onError(new IllegalStateException("ExecutionPublisher allows only a single subscriber."));
+            return;
+        }
+        this.subscriber = s;
+        s.onSubscribe(new RunSubscription());
+    }
+
+    /**
+     * Provide a user input to the run waiting for it.
+     *
+     * @throws InvalidParametersException if the run is not waiting for input
+     */
+    public void provideInput(String input) throws InvalidParametersException {
+        if (!this.awaitingInput) {
+            throw new InvalidParametersException("The run is not waiting for input.");
+        }
+        this.nextMode = ExecutionMode.INPUT;
+        this.nextCode = input;
+        this.awaitingInput = false;
+        drain();
+    }
+
+    public boolean isAwaitingInput() {
+        return this.awaitingInput;
+    }
+
+    public String getRunId() {
+        return this.runId;
+    }
+
+    public Kernel getKernel() {
+        return this.kernel;
+    }
+
+    private void drain() {
+        if (this.wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            if (checkCancelled()) {
+                return;
+            }
+            while (this.demand.get() > 0) {
+                ExecutionEvent event = this.buffer.poll();
+                if (event == null) {
+                    break;
+                }
+                this.subscriber.onNext(event);
+                if (this.demand.get() != Long.MAX_VALUE) {
+                    this.demand.decrementAndGet();
+                }
+                if (checkCancelled()) {
+                    return;
+                }
+            }
+            if (this.buffer.isEmpty() && !this.terminated) {
+                if (this.error != null) {
+                    this.terminated = true;
+                    this.subscriber.onError(this.error);
+                    return;
+                }
+                if (this.finished) {
+                    this.terminated = true;
+                    this.subscriber.onComplete();
+                    return;
+                }
+                if (this.demand.get() > 0 && !this.fetching && !this.awaitingInput) {
+                    this.fetching = true;
+                    this.kernel.getClientConfig().getExecutor().execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            fetch();
+                        }
+                    });
+                }
+            }
+            missed = this.wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    /**
+     * Drop the buffered events if the subscription is cancelled.
+     * If it was cancelled for a specification violation, the subscriber receives the error.
+     *
+     * @return true if the subscription is cancelled.
+     */
+    private boolean checkCancelled() {
+        if (!this.cancelled) {
+            return false;
+        }
+        this.buffer.clear();
+        Throwable violation = this.violation;
+        if (violation != null && !this.terminated) {
+            this.terminated = true;
+            this.subscriber.onError(violation);
+        }
+        return true;
+    }
+
+    private void fetch() {
+        try {
+            ExecutionResult result = this.kernel.execute(this.nextMode, this.runId, this.nextCode, this.opts,
+                    this.deadline);
+            this.opts = null;
+            for (ConsoleChunk chunk : result.getConsole()) {
+                this.buffer.add(chunk);
+            }
+            RunStatus status = result.getStatus();
+            if (status != this.lastStatus) {
+                this.buffer.add(new StatusChange(this.lastStatus, status));
+                this.lastStatus = status;
+            }
+            if (status == RunStatus.FINISHED) {
+                this.finished = true;
+            } else if (status == RunStatus.WAITING_INPUT) {
+                this.awaitingInput = true;
+            } else {
+                this.nextMode = ExecutionMode.CONTINUE;
+                this.nextCode = "";
+            }
+        } catch (BackendClientException e) {
+            this.error = e;
+        } catch (RuntimeException e) {
+            this.error = e;
+        }
+        this.fetching = false;
+        drain();
+    }
+
+    private class RunSubscription implements Subscription {
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                // Signal the error right away even if events are buffered, and stop the run.
+                violation = new IllegalArgumentException("The requested number of events must be positive (rule 3.9).");
+                cancelRun();
+                drain();
+                return;
+            }
+            long current;
+            long next;
+            do {
+                current = demand.get();
+                if (current == Long.MAX_VALUE) {
+                    return;
+                }
+                next = current + n;
+                if (next < 0) {
+                    next = Long.MAX_VALUE;
+                }
+            } while (!demand.compareAndSet(current, next));
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelRun();
+            drain();
+        }
+
+        private void cancelRun() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            boolean started = lastStatus != null || fetching;
+            if (started && !finished) {
+                kernel.getClientConfig().getExecutor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            kernel.interrupt();
+                        } catch (RuntimeException e) {
+                            // The run may have already finished or the session may have expired.
+                        }
+                    }
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,408 @@
+package ai.backend.client;
+
+import ai.backend.client.values.ExecutionMode;
+import ai.backend.client.values.ExecutionResult;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A client-side scheduler of requests to compute sessions shared by multiple tenants.
+ *
+ * <ul>
+ *     <li>Tasks on the same kernel never run at once, so runs never interleave. Tasks of the same tenant on the
+ *     same kernel start in submission order.</li>
+ *     <li>Tasks of a higher {@link Priority} are always started before those of a lower one.</li>
+ *     <li>Within a priority class, tenants share the concurrency by weighted fair queuing: each task gets a
+ *     virtual finish tag advanced by the inverse of its tenant's weight, and the smallest tag runs first.</li>
+ * </ul>
+ * At most {@code maxConcurrency} tasks run at once on the configured executor.
+ * Queue wait times and throughput are tracked per tenant. All methods are thread-safe.
+ */
+public class ExecutionScheduler {
+    public enum Priority {
+        /** Work with a user waiting for the result. */
+        INTERACTIVE,
+        /** Background work which may wait behind interactive work. */
+        BATCH
+    }
+
+    private final int maxConcurrency;
+    private final Map<String, Double> weights;
+    private final Executor executor;
+    private final List<Map<String, LinkedList<Task<?>>>> queues = new ArrayList<Map<String, LinkedList<Task<?>>>>();
+    private final Map<String, Double> lastFinishTags = new HashMap<String, Double>();
+    private final Map<String, TenantCounters> counters = new LinkedHashMap<String, TenantCounters>();
+    private final Set<Kernel> busyKernels = new HashSet<Kernel>();
+    private final long createdNanos = System.nanoTime();
+    private double virtualTime = 0;
+    private int running = 0;
+
+    private class Task<T> extends FutureTask<T> {
+        final Kernel kernel;
+        final String tenant;
+        final double finishTag;
+        final long enqueuedNanos = System.nanoTime();
+        // Guarded by the scheduler.
+        boolean started = false;
+        boolean released = false;
+        volatile boolean entered = false;
+
+        Task(Kernel kernel, String tenant, double finishTag, Callable<T> callable) {
+            this(kernel, tenant, finishTag, new Releasing<T>(callable));
+        }
+
+        private Task(Kernel kernel, String tenant, double finishTag, Releasing<T> releasing) {
+            super(releasing);
+            releasing.task = this;
+            this.kernel = kernel;
+            this.tenant = tenant;
+            this.finishTag = finishTag;
+        }
+
+        @Override
+        public void run() {
+            try {
+                super.run();
+            } finally {
+                if (!this.entered) {
+                    // Cancelled after being dispatched but before the operation started.
+                    finished(this);
+                }
+            }
+        }
+
+        @Override
+        protected void done() {
+            // A cancelled task may still be running, so only a task which never left the queue is removed here.
+            // Started tasks are released when the operation returns.
+            dequeueCancelled(this);
+        }
+    }
+
+    /**
+     * Frees the kernel before the result becomes visible through the future,
+     * so that a caller waiting for it can immediately schedule the next run.
+     */
+    private class Releasing<T> implements Callable<T> {
+        private final Callable<T> operation;
+        private Task<T> task;
+
+        Releasing(Callable<T> operation) {
+            this.operation = operation;
+        }
+
+        @Override
+        public T call() throws Exception {
+            this.task.entered = true;
+            try {
+                return this.operation.call();
+            } finally {
+                finished(this.task);
+            }
+        }
+    }
+
+    /**
+     * Queue wait times and completions of a tenant.
+     */
+    public static final class TenantStats {
+        private final String tenant;
+        private final long submitted;
+        private final long completed;
+        private final double meanWaitMillis;
+        private final double p99WaitMillis;
+        private final double throughput;
+
+        private TenantStats(String tenant, TenantCounters c, double elapsedSeconds) {
+            this.tenant = tenant;
+            this.submitted = c.submitted;
+            this.completed = c.completed;
+            this.meanWaitMillis = c.waits.getMeanMillis();
+            this.p99WaitMillis = c.waits.getPercentileMillis(99);
+            this.throughput = elapsedSeconds > 0 ? c.completed / elapsedSeconds : 0;
+        }
+
+        public String getTenant() {
+            return tenant;
+        }
+
+        public long getSubmitted() {
+            return submitted;
+        }
+
+        public long getCompleted() {
+            return completed;
+        }
+
+        /**
+         * Returns the mean time tasks waited in the queue before starting, in milliseconds.
+         */
+        public double getMeanWaitMillis() {
+            return meanWaitMillis;
+        }
+
+        public double getP99WaitMillis() {
+            return p99WaitMillis;
+        }
+
+        /**
+         * Returns the completed tasks per second since the scheduler was created.
+         */
+        public double getThroughput() {
+            return throughput;
+        }
+    }
+
+    private static class TenantCounters {
+        final LatencyRecorder waits = new LatencyRecorder(1024);
+        long submitted;
+        long completed;
+    }
+
+    private ExecutionScheduler(Builder builder) {
+        this.maxConcurrency = builder.maxConcurrency;
+        this.weights = new HashMap<String, Double>(builder.weights);
+        this.executor = builder.executor != null ? builder.executor : ClientExecutors.defaultExecutor();
+        for (int i = 0; i < Priority.values().length; i++) {
+            this.queues.add(new LinkedHashMap<String, LinkedList<Task<?>>>());
+        }
+    }
+
+    /**
+     * Schedule an arbitrary operation on the given kernel, such as a whole run including its continuations.
+     *
+     * @param tenant The tag of the tenant which the work is accounted to.
+     * @param priority The priority class of the work.
+     * @param kernel The kernel the operation uses. Operations on the same kernel never overlap.
+     * @param operation The operation to run.
+     * @return A future of the result of the operation.
+     */
+    public <T> Future<T> submit(String tenant, Priority priority, Kernel kernel, Callable<T> operation) {
+        Task<T> task;
+        synchronized (this) {
+            double weight = getWeight(tenant);
+            Double last = this.lastFinishTags.get(tenant);
+            double start = Math.max(this.virtualTime, last != null ? last : 0);
+            task = new Task<T>(kernel, tenant, start + 1 / weight, operation);
+            this.lastFinishTags.put(tenant, task.finishTag);
+            Map<String, LinkedList<Task<?>>> queue = this.queues.get(priority.ordinal());
+            LinkedList<Task<?>> tenantQueue = queue.get(tenant);
+            if (tenantQueue == null) {
+                tenantQueue = new LinkedList<Task<?>>();
+                queue.put(tenant, tenantQueue);
+            }
+            tenantQueue.add(task);
+            countersOf(tenant).submitted++;
+        }
+        dispatch();
+        return task;
+    }
+
+    /**
+     * Schedule a single execute request.
+     *
+     * @see Kernel#execute(ExecutionMode, String, String, JsonObject, Deadline)
+     */
+    public Future<ExecutionResult> execute(String tenant, Priority priority, final Kernel kernel,
+                                           final ExecutionMode mode, final String runId, final String code,
+                                           final JsonObject opts, final Deadline deadline) {
+        return submit(tenant, priority, kernel, new Callable<ExecutionResult>() {
+            @Override
+            public ExecutionResult call() {
+                return kernel.execute(mode, runId, code, opts, deadline);
+            }
+        });
+    }
+
+    private double getWeight(String tenant) {
+        Double weight = this.weights.get(tenant);
+        return weight != null ? weight : 1.0;
+    }
+
+    private TenantCounters countersOf(String tenant) {
+        TenantCounters c = this.counters.get(tenant);
+        if (c == null) {
+            c = new TenantCounters();
+            this.counters.put(tenant, c);
+        }
+        return c;
+    }
+
+    /**
+     * Start queued tasks while there is spare concurrency.
+     */
+    private void dispatch() {
+        List<Task<?>> started = new ArrayList<Task<?>>();
+        synchronized (this) {
+            while (this.running < this.maxConcurrency) {
+                Task<?> next = pollNext();
+                if (next == null) {
+                    break;
+                }
+                next.started = true;
+                this.running++;
+                this.busyKernels.add(next.kernel);
+                this.virtualTime = Math.max(this.virtualTime, next.finishTag - 1 / getWeight(next.tenant));
+                countersOf(next.tenant).waits.record(System.nanoTime() - next.enqueuedNanos);
+                started.add(next);
+            }
+        }
+        for (Task<?> task : started) {
+            this.executor.execute(task);
+        }
+    }
+
+    /**
+     * Remove and return the eligible task with the smallest finish tag in the highest non-empty priority class.
+     * A task is eligible if its kernel is idle and no earlier task of the same kernel is queued.
+     */
+    private Task<?> pollNext() {
+        for (Map<String, LinkedList<Task<?>>> queue : this.queues) {
+            Task<?> best = null;
+            LinkedList<Task<?>> bestQueue = null;
+            for (LinkedList<Task<?>> tenantQueue : queue.values()) {
+                Set<Kernel> seen = new HashSet<Kernel>();
+                for (Iterator<Task<?>> it = tenantQueue.iterator(); it.hasNext(); ) {
+                    Task<?> task = it.next();
+                    if (task.isCancelled()) {
+                        it.remove();
+                        continue;
+                    }
+                    if (!seen.add(task.kernel) || this.busyKernels.contains(task.kernel)) {
+                        continue;
+                    }
+                    if (best == null || task.finishTag < best.finishTag) {
+                        best = task;
+                        bestQueue = tenantQueue;
+                    }
+                    break;
+                }
+            }
+            if (best != null) {
+                bestQueue.remove(best);
+                return best;
+            }
+        }
+        return null;
+    }
+
+    private synchronized void dequeueCancelled(Task<?> task) {
+        if (task.started || task.released) {
+            return;
+        }
+        task.released = true;
+        for (Map<String, LinkedList<Task<?>>> queue : this.queues) {
+            LinkedList<Task<?>> tenantQueue = queue.get(task.tenant);
+            if (tenantQueue != null) {
+                tenantQueue.remove(task);
+            }
+        }
+    }
+
+    private void finished(Task<?> task) {
+        synchronized (this) {
+            if (task.released) {
+                return;
+            }
+            task.released = true;
+            this.busyKernels.remove(task.kernel);
+            this.running--;
+            countersOf(task.tenant).completed++;
+        }
+        dispatch();
+    }
+
+    /**
+     * Returns the number of tasks waiting to start.
+     */
+    public synchronized int getQueuedCount() {
+        int count = 0;
+        for (Map<String, LinkedList<Task<?>>> queue : this.queues) {
+            for (LinkedList<Task<?>> tenantQueue : queue.values()) {
+                count += tenantQueue.size();
+            }
+        }
+        return count;
+    }
+
+    public synchronized int getRunningCount() {
+        return this.running;
+    }
+
+    /**
+     * Returns the queue wait times and throughput of all tenants seen so far.
+     */
+    public synchronized List<TenantStats> getTenantStats() {
+        double elapsed = (System.nanoTime() - this.createdNanos) / 1e9;
+        List<TenantStats> stats = new ArrayList<TenantStats>();
+        for (Map.Entry<String, TenantCounters> e : this.counters.entrySet()) {
+            stats.add(new TenantStats(e.getKey(), e.getValue(), elapsed));
+        }
+        return Collections.unmodifiableList(stats);
+    }
+
+    /**
+     * Returns the queue wait times and throughput of the given tenant, or null if it never submitted work.
+     */
+    public synchronized TenantStats getTenantStats(String tenant) {
+        TenantCounters c = this.counters.get(tenant);
+        return c != null ? new TenantStats(tenant, c, (System.nanoTime() - this.createdNanos) / 1e9) : null;
+    }
+
+    public static class Builder {
+        private int maxConcurrency = 16;
+        private final Map<String, Double> weights = new HashMap<String, Double>();
+        private Executor executor = null;
+
+        /**
+         * The maximum number of tasks running at once across all tenants (default 16).
+         */
+        public Builder maxConcurrency(int val) {
+            maxConcurrency = val;
+            return this;
+        }
+
+        /**
+         * The share of a tenant relative to others (default 1). A tenant with weight 2 gets twice as many
+         * task starts as a tenant with weight 1 while both have queued work.
+         */
+        public Builder weight(String tenant, double val) {
+            weights.put(tenant, val);
+            return this;
+        }
+
+        /**
+         * The executor which runs the tasks. The shared client executor is used by default.
+         */
+        public Builder executor(Executor val) {
+            executor = val;
+            return this;
+        }
+
+        public ExecutionScheduler build() {
+            if (maxConcurrency <= 0) {
+                throw new IllegalArgumentException("maxConcurrency must be positive.");
+            }
+            for (double weight : weights.values()) {
+                if (weight <= 0) {
+                    throw new IllegalArgumentException("Tenant weights must be positive.");
+                }
+            }
+            return new ExecutionScheduler(this);
+        }
+    }
+}
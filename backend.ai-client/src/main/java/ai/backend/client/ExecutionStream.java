@@ -0,0 +1,204 @@
+package ai.backend.client;
+
+import ai.backend.client.exceptions.BackendClientException;
+import ai.backend.client.exceptions.InvalidParametersException;
+import ai.backend.client.values.ExecutionMode;
+import ai.backend.client.values.ExecutionResult;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A streaming execution channel over a persistent WebSocket connection to a compute session.
+ * Unlike {@link Kernel#execute}, the server pushes output frames as they are produced
+ * and the client does not need to poll with {@link ExecutionMode#CONTINUE} requests.
+ * User inputs for {@link ai.backend.client.values.RunStatus#WAITING_INPUT} are sent over the same channel.
+ */
+public class ExecutionStream {
+    private static final int NORMAL_CLOSURE = 1000;
+
+    private final Kernel kernel;
+    private final ExecutionStreamListener listener;
+    private final WebSocket webSocket;
+    private volatile String runId;
+    private volatile boolean open = true;
+    private final AtomicBoolean released = new AtomicBoolean(false);
+
+    ExecutionStream(Kernel kernel, ExecutionStreamListener listener) {
+        this.kernel = kernel;
+        this.listener = listener;
+        // The kernel counts as busy while the stream is open, so that it is not reaped as idle.
+        kernel.beginUse();
+        try {
+            this.webSocket = kernel.openWebSocket(
+                    String.format("/stream/kernel/%s/execute", kernel.getId()), new FrameListener());
+        } catch (RuntimeException e) {
+            release();
+            throw e;
+        }
+    }
+
+    /**
+     * Start a new run in this stream.
+     * Results are delivered to the listener as the server produces them.
+     *
+     * @param mode The mode of execution (either QUERY or BATCH).
+     * @param runId The run identifier (8 to 64 bytes).
+     * @param code A code snippet to execute.
+     * @param opts An optional object specifying batch-mode build and execution commands.
+     * @throws BackendClientException if the stream is already closed
+     */
+    public void execute(ExecutionMode mode, String runId, String code, JsonObject opts) throws BackendClientException {
+        if (runId.length() < 8 || runId.length() > 64) {
+            throw new InvalidParametersException("runId is too short or too long.");
+        }
+        this.runId = runId;
+        send(mode, code, opts);
+    }
+
+    /**
+     * Send a user input to the current run waiting for it.
+     *
+     * @param input A user-input string.
+     * @throws BackendClientException if there is no current run or the stream is already closed
+     */
+    public void sendInput(String input) throws BackendClientException {
+        if (this.runId == null) {
+            throw new InvalidParametersException("There is no run to send the input.");
+        }
+        send(ExecutionMode.INPUT, input, null);
+    }
+
+    /**
+     * Gracefully close the stream.
+     */
+    public void close() {
+        if (this.open) {
+            this.open = false;
+            this.webSocket.close(NORMAL_CLOSURE, null);
+        }
+        release();
+    }
+
+    /**
+     * Forcibly release the underlying connection without the closing handshake.
+     */
+    public void cancel() {
+        this.open = false;
+        this.webSocket.cancel();
+        release();
+    }
+
+    private void release() {
+        if (this.released.compareAndSet(false, true)) {
+            this.kernel.endUse();
+        }
+    }
+
+    public boolean isOpen() {
+        return this.open;
+    }
+
+    public Kernel getKernel() {
+        return this.kernel;
+    }
+
+    /**
+     * Returns the ID of the current run.
+     */
+    public String getRunId() {
+        return this.runId;
+    }
+
+    private void send(ExecutionMode mode, String code, JsonObject opts) throws BackendClientException {
+        JsonObject frame = new JsonObject();
+        frame.addProperty("mode", mode.getValue());
+        frame.addProperty("code", code);
+        if (opts != null) {
+            frame.add("options", opts);
+        }
+        frame.addProperty("runId", this.runId);
+        if (!this.open || !this.webSocket.send(APIFunction.gson().toJson(frame))) {
+            throw new BackendClientException("The execution stream is already closed.");
+        }
+        this.kernel.touch();
+    }
+
+    /**
+     * Wrap a frame into the same shape of the execute API response.
+     * The server may send either {"result": {...}} or the bare result object.
+     */
+    static ExecutionResult parseFrame(String text) throws IOException {
+        try {
+            JsonObject o = new JsonParser().parse(text).getAsJsonObject();
+            if (!o.has("result")) {
+                JsonObject wrapped = new JsonObject();
+                wrapped.add("result", o);
+                o = wrapped;
+            }
+            return new ExecutionResult(o);
+        } catch (JsonSyntaxException e) {
+            throw new IOException("Could not parse JSON from the stream frame.", e);
+        } catch (IllegalStateException e) {
+            throw new IOException("The frame must contain a single JSON object at root.", e);
+        }
+    }
+
+    private class FrameListener extends WebSocketListener {
+        @Override
+        public void onMessage(WebSocket webSocket, String text) {
+            kernel.touch();
+            ExecutionResult result;
+            try {
+                result = parseFrame(text);
+            } catch (IOException e) {
+                listener.onFailure(ExecutionStream.this, new BackendClientException("Malformed stream frame", e));
+                return;
+            }
+            listener.onResult(ExecutionStream.this, result);
+        }
+
+        @Override
+        public void onClosing(WebSocket webSocket, int code, String reason) {
+            open = false;
+            webSocket.close(NORMAL_CLOSURE, null);
+        }
+
+        @Override
+        public void onClosed(WebSocket webSocket, int code, String reason) {
+            open = false;
+            release();
+            listener.onClosed(ExecutionStream.this, code, reason);
+        }
+
+        @Override
+        public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+            open = false;
+            release();
+            BackendClientException error;
+            if (response != null && !response.isSuccessful()) {
+                RuntimeException e;
+                try {
+                    e = APIFunction.errorFromResponse(response);
+                } catch (IOException ioe) {
+                    e = new BackendClientException("Request/response failed", ioe);
+                }
+                if (e instanceof BackendClientException) {
+                    error = (BackendClientException) e;
+                } else {
+                    error = new BackendClientException(e.getMessage(), e);
+                }
+            } else {
+                error = new BackendClientException("Request/response failed", t);
+            }
+            listener.onFailure(ExecutionStream.this, error);
+        }
+    }
+}
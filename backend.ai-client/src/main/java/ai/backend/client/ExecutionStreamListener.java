@@ -0,0 +1,32 @@
+package ai.backend.client;
+
+import ai.backend.client.exceptions.BackendClientException;
+import ai.backend.client.values.ExecutionResult;
+
+/**
+ * Receives events from an {@link ExecutionStream}.
+ * All methods are called from the HTTP client's dispatcher threads, so implementations should return quickly.
+ */
+public abstract class ExecutionStreamListener {
+
+    /**
+     * Invoked for each result frame pushed by the server.
+     * A frame with {@link ai.backend.client.values.RunStatus#WAITING_INPUT} status expects a call to
+     * {@link ExecutionStream#sendInput(String)}.
+     */
+    public void onResult(ExecutionStream stream, ExecutionResult result) {
+    }
+
+    /**
+     * Invoked when the stream is closed by either side.
+     */
+    public void onClosed(ExecutionStream stream, int code, String reason) {
+    }
+
+    /**
+     * Invoked when the stream fails due to network errors or an unsuccessful upgrade.
+     * No more events are delivered afterwards.
+     */
+    public void onFailure(ExecutionStream stream, BackendClientException e) {
+    }
+}
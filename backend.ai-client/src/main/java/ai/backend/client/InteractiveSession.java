@@ -0,0 +1,299 @@
+package ai.backend.client;
+
+import ai.backend.client.exceptions.BackendClientException;
+import ai.backend.client.exceptions.InvalidParametersException;
+import ai.backend.client.values.ExecutionMode;
+import ai.backend.client.values.ExecutionResult;
+import ai.backend.client.values.RunStatus;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * An interactive run driven by a per-session input queue.
+ *
+ * User inputs are queued with {@link #submitInput(String)} and sent whenever the program waits for input.
+ * All lines queued while the previous input is being processed are coalesced into a single input request,
+ * joined with newlines.
+ * When the session runs over an {@link ExecutionStream}, up to {@code pipelineDepth} input batches may be sent
+ * ahead of the server's {@link RunStatus#WAITING_INPUT} prompt so that the next input is already on the wire
+ * while the previous response is still in flight.
+ * Over plain HTTP the execute API accepts only one request per run at a time, so inputs are never pipelined.
+ *
+ * The latency from queuing an input to the response that consumed it
+ * (the {@link RunStatus#WAITING_INPUT} or {@link RunStatus#FINISHED} result following the prompt the input answered)
+ * is recorded in {@link #getLatency()}.
+ */
+public class InteractiveSession {
+    private static final PendingInput STOP = new PendingInput(null, 0);
+
+    private final Kernel kernel;
+    private final InteractiveSessionListener listener;
+    private final ExecutionStream stream;
+    private final int pipelineDepth;
+    private final LinkedBlockingQueue<PendingInput> pending = new LinkedBlockingQueue<PendingInput>();
+    private final LinkedList<Long> inFlight = new LinkedList<Long>();
+    private final LatencyRecorder latency = new LatencyRecorder(1024);
+    private volatile String runId;
+    private volatile boolean running = false;
+    /** The number of input batches sent minus the number of prompts received; negative while a prompt waits. */
+    private int inputsAhead = 0;
+    /** True until the response to the code which started the run, which consumes no input. */
+    private boolean startPending = false;
+
+    InteractiveSession(Kernel kernel, boolean streaming, int pipelineDepth, InteractiveSessionListener listener) {
+        if (pipelineDepth < 0) {
+            throw new InvalidParametersException("pipelineDepth must not be negative.");
+        }
+        this.kernel = kernel;
+        this.listener = listener;
+        if (streaming) {
+            this.stream = kernel.openStream(new StreamListener());
+            this.pipelineDepth = pipelineDepth;
+        } else {
+            this.stream = null;
+            this.pipelineDepth = 0;
+        }
+    }
+
+    /**
+     * Start a new run in this session.
+     *
+     * @param mode The mode of execution (either QUERY or BATCH).
+     * @param code A code snippet to execute.
+     * @param opts An optional object specifying batch-mode build and execution commands.
+     * @throws BackendClientException if another run is still in progress
+     */
+    public synchronized void start(final ExecutionMode mode, final String code, final JsonObject opts)
+            throws BackendClientException {
+        if (this.running) {
+            throw new BackendClientException("Another run is in progress.");
+        }
+        this.runId = Kernel.generateRunId();
+        this.running = true;
+        this.inputsAhead = 0;
+        this.startPending = true;
+        this.inFlight.clear();
+        this.pending.remove(STOP);
+        if (this.stream != null) {
+            this.stream.execute(mode, this.runId, code, opts);
+        } else {
+            this.kernel.getClientConfig().getExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    poll(mode, code, opts);
+                }
+            });
+        }
+    }
+
+    /**
+     * Queue a line of user input.
+     * It is sent as soon as the program waits for input, or immediately if pipelining allows it.
+     */
+    public void submitInput(String line) {
+        this.pending.add(new PendingInput(line, System.nanoTime()));
+        if (this.stream != null) {
+            flush();
+        }
+    }
+
+    /**
+     * Stop the current run loop and close the underlying stream if any.
+     * Queued inputs are discarded.
+     */
+    public void close() {
+        synchronized (this) {
+            this.running = false;
+        }
+        this.pending.clear();
+        this.pending.add(STOP);
+        if (this.stream != null) {
+            this.stream.close();
+        }
+    }
+
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    public boolean isStreaming() {
+        return this.stream != null;
+    }
+
+    public String getRunId() {
+        return this.runId;
+    }
+
+    public Kernel getKernel() {
+        return this.kernel;
+    }
+
+    /**
+     * Returns the input-to-response latency statistics of this session.
+     */
+    public LatencyRecorder getLatency() {
+        return this.latency;
+    }
+
+    /**
+     * Returns the number of queued input lines not sent yet.
+     */
+    public int getPendingInputCount() {
+        int n = this.pending.size();
+        return this.pending.contains(STOP) ? n - 1 : n;
+    }
+
+    private void poll(ExecutionMode mode, String code, JsonObject opts) {
+        // Keep the session from being reaped as idle while the run is in progress, except while it waits for input.
+        this.kernel.beginUse();
+        try {
+            while (this.running) {
+                ExecutionResult result = this.kernel.execute(mode, this.runId, code, opts);
+                if (!handleResult(result)) {
+                    return;
+                }
+                opts = null;
+                if (result.getStatus() == RunStatus.WAITING_INPUT) {
+                    List<PendingInput> batch = new ArrayList<PendingInput>();
+                    // Let the idle reaper reclaim the session if the user never answers.
+                    this.kernel.endUse();
+                    try {
+                        batch.add(this.pending.take());
+                    } finally {
+                        this.kernel.beginUse();
+                    }
+                    this.pending.drainTo(batch);
+                    code = joinBatch(batch);
+                    if (code == null) {
+                        return;
+                    }
+                    mode = ExecutionMode.INPUT;
+                } else {
+                    code = "";
+                    mode = ExecutionMode.CONTINUE;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (BackendClientException e) {
+            fail(e);
+        } catch (RuntimeException e) {
+            fail(new BackendClientException(e.getMessage(), e));
+        } finally {
+            this.kernel.endUse();
+        }
+    }
+
+    private void flush() {
+        List<String> batches = new ArrayList<String>();
+        synchronized (this) {
+            while (this.running
+                    && this.inputsAhead < this.pipelineDepth
+                    && !this.pending.isEmpty()) {
+                List<PendingInput> batch = new ArrayList<PendingInput>();
+                this.pending.drainTo(batch);
+                String code = joinBatch(batch);
+                if (code == null) {
+                    return;
+                }
+                batches.add(code);
+            }
+            // Send while holding the lock to keep the order of batches.
+            for (String code : batches) {
+                this.stream.sendInput(code);
+            }
+        }
+    }
+
+    /**
+     * Coalesce queued lines into one input string and mark it as in flight.
+     *
+     * @return The joined input, or null if the session is being closed.
+     */
+    private synchronized String joinBatch(List<PendingInput> batch) {
+        StringBuilder sb = new StringBuilder();
+        for (PendingInput input : batch) {
+            if (input == STOP) {
+                return null;
+            }
+            if (sb.length() > 0) {
+                sb.append('\n');
+            }
+            sb.append(input.line);
+        }
+        this.inFlight.add(batch.get(0).enqueuedAt);
+        this.inputsAhead++;
+        return sb.toString();
+    }
+
+    /**
+     * Update the input bookkeeping with a new result and pass it to the listener.
+     *
+     * @return true if the run continues.
+     */
+    private boolean handleResult(ExecutionResult result) {
+        RunStatus status = result.getStatus();
+        boolean finished = status == RunStatus.FINISHED;
+        synchronized (this) {
+            if (status == RunStatus.WAITING_INPUT || finished) {
+                // Every response but the first answers the oldest input in flight,
+                // even if the input was pipelined before the prompt for it arrived.
+                if (this.startPending) {
+                    this.startPending = false;
+                } else {
+                    Long sentAt = this.inFlight.poll();
+                    if (sentAt != null) {
+                        this.latency.record(System.nanoTime() - sentAt);
+                    }
+                }
+            }
+            if (status == RunStatus.WAITING_INPUT) {
+                this.inputsAhead--;
+            }
+            if (finished) {
+                this.running = false;
+                this.inFlight.clear();
+            }
+        }
+        this.listener.onResult(this, result);
+        if (finished) {
+            this.listener.onFinished(this);
+        }
+        return !finished;
+    }
+
+    private void fail(BackendClientException e) {
+        synchronized (this) {
+            this.running = false;
+        }
+        this.listener.onFailure(this, e);
+    }
+
+    private class StreamListener extends ExecutionStreamListener {
+        @Override
+        public void onResult(ExecutionStream stream, ExecutionResult result) {
+            if (handleResult(result)) {
+                flush();
+            }
+        }
+
+        @Override
+        public void onFailure(ExecutionStream stream, BackendClientException e) {
+            fail(e);
+        }
+    }
+
+    private static class PendingInput {
+        final String line;
+        final long enqueuedAt;
+
+        PendingInput(String line, long enqueuedAt) {
+            this.line = line;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
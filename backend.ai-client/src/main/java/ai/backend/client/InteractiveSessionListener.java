@@ -0,0 +1,29 @@
+package ai.backend.client;
+
+import ai.backend.client.exceptions.BackendClientException;
+import ai.backend.client.values.ExecutionResult;
+
+/**
+ * Receives outputs from an {@link InteractiveSession}.
+ * Methods are called from a background thread, so implementations should return quickly.
+ */
+public abstract class InteractiveSessionListener {
+
+    /**
+     * Invoked for each execution result of the current run.
+     */
+    public void onResult(InteractiveSession session, ExecutionResult result) {
+    }
+
+    /**
+     * Invoked when the current run finishes.
+     */
+    public void onFinished(InteractiveSession session) {
+    }
+
+    /**
+     * Invoked when the current run is aborted due to an error.
+     */
+    public void onFailure(InteractiveSession session, BackendClientException e) {
+    }
+}
@@ -3,7 +3,12 @@ package ai.backend.client;
 import ai.backend.client.exceptions.*;
 import ai.backend.client.values.ExecutionMode;
 import ai.backend.client.values.ExecutionResult;
+import ai.backend.client.values.ResourceUsage;
+import ai.backend.client.values.RunStatus;
+import ai.backend.client.values.SessionInfo;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import okhttp3.MediaType;
 import okhttp3.MultipartBody;
 import okhttp3.RequestBody;
@@ -11,19 +16,38 @@ import okhttp3.Response;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static okhttp3.MultipartBody.FORM;
 
 
 public class Kernel extends APIFunction {
     private final String kernelType;
-    private final String sessionToken;
+    private final String clientSessionToken;
+    private volatile String sessionToken;
+    private volatile boolean recoveryEnabled = false;
+    private volatile Map<String, String> uploadManifest = null;
+    private volatile int recoveryGeneration = 0;
+    private final AtomicInteger recoveryCount = new AtomicInteger();
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private final Object usageLock = new Object();
+    private volatile long lastUsedMillis = System.currentTimeMillis();
+    private final BuildTracker buildTracker = new BuildTracker();
+    private volatile boolean buildTrackingEnabled = false;
+    private volatile ResourceUsage resourceUsage = null;
 
-    private Kernel(String sessionToken, String kernelType, ClientConfig config)
+    private Kernel(String sessionToken, String kernelType, ClientConfig config, Deadline deadline)
             throws ServiceUnavaliableException, NetworkFailureException, UnknownException {
-        super(config);
+        super(config, config.getKeypairPool().acquire());
         String token;
         if(sessionToken == null) {
             token = generateSessionToken();
@@ -31,7 +55,53 @@ public class Kernel extends APIFunction {
             token = sessionToken;
         }
         this.kernelType = kernelType;
-        this.sessionToken = createKernelIfNotExists(token);
+        this.clientSessionToken = token;
+        try {
+            this.sessionToken = createSession(token, deadline);
+        } catch (RuntimeException e) {
+            getKeypair().cancelReservation();
+            throw e;
+        }
+        getKeypair().own(this.sessionToken);
+    }
+
+    /**
+     * Create the session on the selected endpoint with the selected keypair.
+     * While the endpoint cannot be connected at all, it fails over to the other healthy endpoints,
+     * and while the keypair is throttled, it retries with the other keypairs in rotation.
+     * Once created, the session stays on that endpoint and keeps signing with that keypair.
+     * The reservation of the keypair moves along when switching keypairs.
+     */
+    private String createSession(String token, Deadline deadline) {
+        List<Endpoint> tried = new ArrayList<Endpoint>();
+        List<Keypair> throttled = new ArrayList<Keypair>();
+        while (true) {
+            try {
+                return createKernelIfNotExists(token, deadline);
+            } catch (ResourceLimitException e) {
+                if (!getKeypair().isBenched()) {
+                    throw e;
+                }
+                throttled.add(getKeypair());
+                Keypair next = this.config.getKeypairPool().acquire(throttled);
+                if (next == null) {
+                    throw e;
+                }
+                getKeypair().cancelReservation();
+                bindKeypair(next);
+            } catch (BackendClientException e) {
+                Throwable cause = e.getCause();
+                if (!(cause instanceof ConnectException || cause instanceof UnknownHostException)) {
+                    throw e;
+                }
+                tried.add(getEndpoint());
+                Endpoint next = this.config.getEndpointPool().failover(tried);
+                if (next == null) {
+                    throw e;
+                }
+                bindEndpoint(next);
+            }
+        }
     }
 
     /**
@@ -45,7 +115,22 @@ public class Kernel extends APIFunction {
      * @return A kernel object representing the compute session.
      */
     public static Kernel getOrCreateInstance(String sessionToken, String kernelType, ClientConfig config) {
-        return new Kernel(sessionToken, kernelType,  config);
+        return getOrCreateInstance(sessionToken, kernelType, config, null);
+    }
+
+    /**
+     * Prepare a compute session which must be ready by the given deadline.
+     *
+     * @see #getOrCreateInstance(String, String, ClientConfig)
+     * @param deadline The deadline of the creation request, or null to wait indefinitely.
+     */
+    public static Kernel getOrCreateInstance(String sessionToken, String kernelType, ClientConfig config,
+                                             Deadline deadline) {
+        Kernel kernel = new Kernel(sessionToken, kernelType, config, deadline);
+        if (config.getSessionRegistry() != null) {
+            config.getSessionRegistry().register(kernel);
+        }
+        return kernel;
     }
 
     /**
@@ -58,38 +143,241 @@ public class Kernel extends APIFunction {
      * @throws BackendClientException
      */
     public ExecutionResult execute(ExecutionMode mode, String runId, String code, JsonObject opts) throws BackendClientException {
+        return execute(mode, runId, code, opts, null);
+    }
+
+    /**
+     * Execute user codes in this compute session by the given deadline.
+     * Pass the same deadline to all continuations of a run to bound the whole run.
+     * If the deadline expires, the in-flight request is cancelled and {@link #interrupt()} is sent
+     * in the background so that the kernel stops the run right away.
+     * If the configuration has an {@link ExecutionCache}, a query whose result is cached returns immediately
+     * without any request, with its run ID replaced by the given one, and a query which finishes within this call
+     * is stored in the cache.
+     *
+     * @see #execute(ExecutionMode, String, String, JsonObject)
+     * @param deadline The deadline of the run, or null to wait indefinitely.
+     * @throws DeadlineExceededException if the deadline expires before the result arrives
+     */
+    public ExecutionResult execute(ExecutionMode mode, String runId, String code, JsonObject opts, Deadline deadline)
+            throws BackendClientException {
+        ExecutionCache cache = this.config.getExecutionCache();
+        if (cache == null || mode != ExecutionMode.QUERY) {
+            return executeUncached(mode, runId, code, opts, deadline);
+        }
+        if (runId.length() < 8 || runId.length() > 64) {
+            throw new InvalidParametersException("runId is too short or too long.");
+        }
+        String key = ExecutionCache.keyOf(this.kernelType, code, opts);
+        String cached = cache.get(key);
+        if (cached != null) {
+            JsonObject json = new JsonParser().parse(cached).getAsJsonObject();
+            JsonElement result = json.get("result");
+            if (result != null && result.isJsonObject() && result.getAsJsonObject().has("runId")) {
+                // Report the caller's run instead of the run which stored the result.
+                result.getAsJsonObject().addProperty("runId", runId);
+            }
+            return new ExecutionResult(json);
+        }
+        ExecutionResult result = executeUncached(mode, runId, code, opts, deadline);
+        if (result.isFinished()) {
+            cache.put(key, result.getAsJson());
+        }
+        return result;
+    }
+
+    /**
+     * Execute user codes in this compute session, always sending the request even if
+     * the configuration has an {@link ExecutionCache}. The result is not stored in the cache either.
+     *
+     * @see #execute(ExecutionMode, String, String, JsonObject, Deadline)
+     */
+    public ExecutionResult executeUncached(ExecutionMode mode, String runId, String code, JsonObject opts,
+                                           Deadline deadline) throws BackendClientException {
         if (runId.length() < 8 || runId.length() > 64) {
             throw new InvalidParametersException("runId is too short or too long.");
         }
         JsonObject jsonObject = new JsonObject();
         jsonObject.addProperty("mode", mode.getValue());
         jsonObject.addProperty("code", code);
+        if (this.buildTrackingEnabled && mode == ExecutionMode.BATCH) {
+            opts = this.buildTracker.prepare(runId, opts);
+        }
         if (opts != null) {
             jsonObject.add("options", opts);
         }
         jsonObject.addProperty("runId", runId);
-        String makeRequestBody = GSON.toJson(jsonObject);
+        String makeRequestBody = gson().toJson(jsonObject);
         try {
-            Response resp = this.makeRequest("POST", String.format("/kernel/%s", this.sessionToken), makeRequestBody);
+            Response resp = this.makeRequest("POST", String.format("/kernel/%s", this.sessionToken),
+                    makeRequestBody, deadline);
             JsonObject result = parseResponseAsJson(resp);
-            return new ExecutionResult(result);
+            ExecutionResult executionResult = new ExecutionResult(result);
+            this.buildTracker.observe(runId, executionResult.getStatus());
+            ResourceUsageRegistry registry = this.config.getResourceUsageRegistry();
+            // Continuation responses of the same run are not separate executions.
+            if (registry != null && executionResult.getStatus() == RunStatus.FINISHED) {
+                registry.recordExecution(this.kernelType, executionResult.getResourceUsage());
+            }
+            return executionResult;
+        } catch (DeadlineExceededException e) {
+            interruptInBackground();
+            throw e;
         } catch (IOException e) {
             throw new BackendClientException("Request/response failed", e);
         }
     }
 
+    private void interruptInBackground() {
+        this.config.getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    interrupt();
+                } catch (RuntimeException e) {
+                    // The run may have already finished or the session may have expired.
+                }
+            }
+        });
+    }
+
+    /**
+     * Execute user codes in this compute session on the executor of the client configuration.
+     * With virtual threads enabled, each call runs on its own virtual thread.
+     *
+     * @see #execute(ExecutionMode, String, String, JsonObject)
+     * @return A future of the execution result.
+     */
+    public Future<ExecutionResult> executeAsync(final ExecutionMode mode, final String runId, final String code,
+                                                final JsonObject opts) {
+        return executeAsync(mode, runId, code, opts, null);
+    }
+
+    /**
+     * Execute user codes in this compute session by the given deadline on the executor of the client configuration.
+     *
+     * @see #execute(ExecutionMode, String, String, JsonObject, Deadline)
+     * @return A future of the execution result.
+     */
+    public Future<ExecutionResult> executeAsync(final ExecutionMode mode, final String runId, final String code,
+                                                final JsonObject opts, final Deadline deadline) {
+        return this.config.submit(new Callable<ExecutionResult>() {
+            @Override
+            public ExecutionResult call() throws BackendClientException {
+                return execute(mode, runId, code, opts, deadline);
+            }
+        });
+    }
+
+    /**
+     * Prepare a run in this compute session as a Reactive Streams publisher.
+     * The run starts when the subscriber first requests events, and each continuation is
+     * requested only when the subscriber has signaled demand.
+     *
+     * @param mode The mode of execution (either QUERY or BATCH).
+     * @param code A code snippet to execute.
+     * @param opts An optional object specifying batch-mode build and execution commands.
+     * @return A publisher emitting console chunks and status transitions of the run.
+     */
+    public ExecutionPublisher publishExecution(ExecutionMode mode, String code, JsonObject opts) {
+        return publishExecution(mode, code, opts, null);
+    }
+
+    /**
+     * Prepare a run in this compute session as a Reactive Streams publisher whose continuations share the given deadline.
+     * When the deadline expires, the subscriber receives {@link DeadlineExceededException} and the run is interrupted.
+     *
+     * @see #publishExecution(ExecutionMode, String, JsonObject)
+     * @param deadline The deadline of the whole run, or null to wait indefinitely.
+     */
+    public ExecutionPublisher publishExecution(ExecutionMode mode, String code, JsonObject opts, Deadline deadline) {
+        return new ExecutionPublisher(this, mode, generateRunId(), code, opts, deadline);
+    }
+
+    /**
+     * Open a streaming execution channel to this compute session.
+     * Output frames are pushed to the listener as they are produced, avoiding a round trip per continuation.
+     *
+     * @param listener The listener receiving results pushed from the server.
+     * @return The stream object to start runs and send user inputs.
+     */
+    public ExecutionStream openStream(ExecutionStreamListener listener) {
+        return new ExecutionStream(this, listener);
+    }
+
+    /**
+     * Open an interactive session which polls this compute session over HTTP and feeds queued user inputs.
+     *
+     * @param listener The listener receiving execution results.
+     * @return The interactive session object to start runs and queue user inputs.
+     */
+    public InteractiveSession openInteractiveSession(InteractiveSessionListener listener) {
+        return new InteractiveSession(this, false, 0, listener);
+    }
+
+    /**
+     * Open an interactive session which feeds queued user inputs to this compute session.
+     *
+     * @param streaming If true, the session runs over an {@link ExecutionStream} instead of HTTP polling.
+     * @param pipelineDepth The number of input batches that may be sent ahead of the input prompt.
+     *                      Only effective when streaming.
+     * @param listener The listener receiving execution results.
+     * @return The interactive session object to start runs and queue user inputs.
+     */
+    public InteractiveSession openInteractiveSession(boolean streaming, int pipelineDepth,
+                                                     InteractiveSessionListener listener) {
+        return new InteractiveSession(this, streaming, pipelineDepth, listener);
+    }
+
     /**
      * Terminate and destroy the compute session.
+     * The resource usage reported by the manager is available from {@link #getResourceUsage()} afterwards.
      *
      * @throws BackendClientException
      */
     public void destroy() throws BackendClientException {
+        destroy(null);
+    }
+
+    /**
+     * Terminate and destroy the compute session by the given deadline.
+     * If the configuration has a {@link ResourceUsageRegistry}, the reported usage is recorded there.
+     *
+     * @param deadline The deadline of the request, or null to wait indefinitely.
+     * @throws BackendClientException
+     */
+    public void destroy(Deadline deadline) throws BackendClientException {
+        ResourceUsage usage = null;
         try {
-            this.makeRequest("DELETE", String.format("/kernel/%s", this.sessionToken));
-            // TODO: support returned statistics
+            Response resp = this.makeRequest("DELETE", String.format("/kernel/%s", this.sessionToken), deadline);
+            String contentType = resp.header("Content-Type");
+            if (contentType != null && contentType.startsWith("application/json")) {
+                usage = ResourceUsage.fromResponse(parseResponseAsJson(resp));
+            } else {
+                resp.close();
+            }
         } catch (IOException e) {
             throw new BackendClientException("Request/response failed", e);
+        } finally {
+            invalidateInfo();
+        }
+        getKeypair().release(this.sessionToken);
+        if (this.config.getSessionRegistry() != null) {
+            this.config.getSessionRegistry().unregister(this);
+        }
+        ResourceUsageRegistry registry = this.config.getResourceUsageRegistry();
+        if (registry != null) {
+            registry.recordSession(this.kernelType, usage);
         }
+        this.resourceUsage = usage;
+    }
+
+    /**
+     * Returns the resource usage of the session reported when it was destroyed,
+     * or null if it is not destroyed yet or the manager did not report it.
+     */
+    public ResourceUsage getResourceUsage() {
+        return this.resourceUsage;
     }
 
     /**
@@ -98,10 +386,22 @@ public class Kernel extends APIFunction {
      * @throws BackendClientException
      */
     public void refresh() throws BackendClientException {
+        refresh(null);
+    }
+
+    /**
+     * Restart the compute session by the given deadline.
+     *
+     * @param deadline The deadline of the request, or null to wait indefinitely.
+     * @throws BackendClientException
+     */
+    public void refresh(Deadline deadline) throws BackendClientException {
         try {
-            this.makeRequest("PATCH", String.format("/kernel/%s", this.sessionToken));
+            this.makeRequest("PATCH", String.format("/kernel/%s", this.sessionToken), deadline);
         } catch (IOException e) {
             throw new BackendClientException("Request/response failed", e);
+        } finally {
+            invalidateInfo();
         }
     }
 
@@ -112,8 +412,18 @@ public class Kernel extends APIFunction {
      * @throws BackendClientException
      */
     public void interrupt() throws BackendClientException {
+        interrupt(null);
+    }
+
+    /**
+     * Send an interrupt signal to the main program of the compute session by the given deadline.
+     *
+     * @param deadline The deadline of the request, or null to wait indefinitely.
+     * @throws BackendClientException
+     */
+    public void interrupt(Deadline deadline) throws BackendClientException {
         try {
-            this.makeRequest("POST", String.format("/kernel/%s/interrupt", this.sessionToken));
+            this.makeRequest("POST", String.format("/kernel/%s/interrupt", this.sessionToken), deadline);
         } catch (IOException e) {
             throw new BackendClientException("Request/response failed", e);
         }
@@ -126,17 +436,47 @@ public class Kernel extends APIFunction {
      * @throws BackendClientException
      */
     public String verifyType() throws BackendClientException {
-        try {
-            Response resp = this.makeRequest("GET", String.format("/kernel/%s", this.sessionToken));
-            JsonObject result = parseResponseAsJson(resp);
-            if (result.has("lang")) {
-                return result.get("lang").getAsString();
-            } else {
-                return null;
+        return getInfo().getLang();
+    }
+
+    /**
+     * Retrieve the metadata of this compute session.
+     * If the configuration has a {@link SessionInfoCache}, a valid cached entry is returned without a request.
+     *
+     * @return The session metadata
+     * @throws BackendClientException
+     */
+    public SessionInfo getInfo() throws BackendClientException {
+        return getInfo(null);
+    }
+
+    /**
+     * Retrieve the metadata of this compute session by the given deadline.
+     *
+     * @param deadline The deadline of the request, or null to wait indefinitely.
+     * @throws BackendClientException
+     */
+    public SessionInfo getInfo(Deadline deadline) throws BackendClientException {
+        SessionInfoCache cache = this.config.getSessionInfoCache();
+        SessionInfo info;
+        long stamp = 0;
+        if (cache != null) {
+            info = cache.get(this.sessionToken);
+            if (info != null) {
+                return info;
             }
+            stamp = cache.stamp();
+        }
+        try {
+            Response resp = this.makeRequest("GET", String.format("/kernel/%s", this.sessionToken), deadline);
+            info = new SessionInfo(parseResponseAsJson(resp));
         } catch (IOException e) {
             throw new BackendClientException("Request/response failed", e);
         }
+        if (cache != null) {
+            cache.putIfNotInvalidated(this.sessionToken, info, stamp);
+        }
+        return info;
     }
 
     /**
@@ -147,6 +487,17 @@ public class Kernel extends APIFunction {
      * @throws BackendClientException
      */
     public String createKernelIfNotExists(String token) throws BackendClientException {
+        return createKernelIfNotExists(token, null);
+    }
+
+    /**
+     * Create the kernel for a compute session by the given deadline.
+     *
+     * @param token User-defined or randomized session ID.
+     * @param deadline The deadline of the request, or null to wait indefinitely.
+     * @throws BackendClientException
+     */
+    public String createKernelIfNotExists(String token, Deadline deadline) throws BackendClientException {
         String kernelId;
         JsonObject args = new JsonObject();
         args.addProperty("lang", this.kernelType);
@@ -156,7 +507,7 @@ public class Kernel extends APIFunction {
         resourceLimits.addProperty("timeout", 0);
         args.add("resourceLimits", resourceLimits);
         try {
-            Response resp = this.makeRequest("POST", "/kernel/create", args);
+            Response resp = this.makeRequest("POST", "/kernel/create", args, deadline);
             JsonObject result = parseResponseAsJson(resp);
             if(result.has("kernelId")) {
                 kernelId = (result.get("kernelId").getAsString());
@@ -170,6 +521,30 @@ public class Kernel extends APIFunction {
     }
 
     public void upload(Map<String, String> filePaths) {
+        upload(filePaths, null);
+    }
+
+    /**
+     * Upload files to the working directory of the compute session by the given deadline.
+     *
+     * @param filePaths A map of the relative paths in the session to the local file paths.
+     * @param deadline The deadline of the upload, or null to wait indefinitely.
+     */
+    public void upload(Map<String, String> filePaths, Deadline deadline) {
+        Map<String, String> digests = this.buildTrackingEnabled ? BuildTracker.digest(filePaths) : null;
+        RequestBody requestBody = buildUploadBody(filePaths);
+        try {
+            this.makeRequest("POST", String.format("/kernel/%s/upload", sessionToken), requestBody, "", deadline);
+        } catch (IOException e) {
+            throw new BackendClientException("Request/response failed", e);
+        }
+        this.uploadManifest = new LinkedHashMap<String, String>(filePaths);
+        if (digests != null) {
+            this.buildTracker.uploaded(digests);
+        }
+    }
+
+    private static RequestBody buildUploadBody(Map<String, String> filePaths) {
         MultipartBody.Builder builder = new MultipartBody.Builder().setType(FORM);
 
         for(String name : filePaths.keySet()) {
@@ -178,14 +553,188 @@ public class Kernel extends APIFunction {
                             RequestBody.create(MediaType.parse("text/plain"), file));
 
         }
-        RequestBody requestBody = builder.build();
+        return builder.build();
+    }
+
+    /**
+     * Enable or disable skipping unchanged batch-mode builds.
+     * When enabled, files uploaded afterwards are fingerprinted by their paths and contents. A batch run whose
+     * build command and uploaded files match the last build that reached {@link RunStatus#BUILD_FINISHED} in
+     * this session is sent with an empty build command, so that only the execution step runs.
+     * The tracking is reset when the session is recovered, since the build outputs are lost with it.
+     * Leave it disabled if the execution step may modify or remove the build outputs.
+     */
+    public void setBuildTrackingEnabled(boolean enabled) {
+        this.buildTrackingEnabled = enabled;
+    }
+
+    public boolean isBuildTrackingEnabled() {
+        return this.buildTrackingEnabled;
+    }
+
+    /**
+     * Returns the number of batch runs which skipped the build step because nothing changed.
+     */
+    public int getSkippedBuildCount() {
+        return this.buildTracker.getSkippedBuildCount();
+    }
+
+    /**
+     * Enable or disable transparent recovery from session expiry.
+     * When enabled and a request fails with {@link KernelExpiredException}, the session is recreated with
+     * the same kernel type and client session token, the last uploaded file set is uploaded again,
+     * and the failed request is retried once if it is safe to replay.
+     * Replayable requests are information queries, refreshes, uploads and executions starting a new run.
+     * Continuations and user inputs of a run are not replayed because the run state is lost with the session.
+     */
+    public void setRecoveryEnabled(boolean enabled) {
+        this.recoveryEnabled = enabled;
+    }
+
+    public boolean isRecoveryEnabled() {
+        return this.recoveryEnabled;
+    }
+
+    /**
+     * Returns the number of times this kernel object recreated its session.
+     */
+    public int getRecoveryCount() {
+        return this.recoveryCount.get();
+    }
+
+    /**
+     * Recreate the session and replay the last upload manifest.
+     * If another thread already recovered the session after the given generation, this does nothing.
+     */
+    private synchronized void recover(int failedGeneration, Deadline deadline) throws IOException {
+        if (failedGeneration != this.recoveryGeneration) {
+            return;
+        }
+        long started = System.nanoTime();
+        boolean succeeded = false;
         try {
-            this.makeRequest("POST", String.format("/kernel/%s/upload", sessionToken), requestBody, "");
-        } catch (IOException e) {
-            throw new BackendClientException("Request/response failed", e);
+            invalidateInfo();
+            this.buildTracker.reset();
+            String expired = this.sessionToken;
+            this.sessionToken = createKernelIfNotExists(this.clientSessionToken, deadline);
+            if (!this.sessionToken.equals(expired)) {
+                // Count the recreated session instead of the expired one.
+                getKeypair().release(expired);
+                getKeypair().reserve();
+                getKeypair().own(this.sessionToken);
+            }
+            Map<String, String> manifest = this.uploadManifest;
+            if (manifest != null && !manifest.isEmpty()) {
+                super.makeRequest("POST", String.format("/kernel/%s/upload", this.sessionToken),
+                        buildUploadBody(manifest), "", deadline);
+            }
+            this.recoveryGeneration++;
+            this.recoveryCount.incrementAndGet();
+            succeeded = true;
+        } finally {
+            this.config.getMetrics().recordRecovery(System.nanoTime() - started, succeeded);
+        }
+    }
+
+    private static boolean isReplayable(String method, String queryString, String authBaseString) {
+        if (method.equals("GET") || method.equals("PATCH")) {
+            return true;
+        }
+        if (!method.equals("POST")) {
+            return false;
+        }
+        if (queryString.endsWith("/upload")) {
+            return true;
+        }
+        if (queryString.endsWith("/interrupt") || authBaseString == null) {
+            return false;
+        }
+        try {
+            JsonObject body = new JsonParser().parse(authBaseString).getAsJsonObject();
+            String mode = body.get("mode").getAsString();
+            return !mode.equals(ExecutionMode.CONTINUE.getValue()) && !mode.equals(ExecutionMode.INPUT.getValue());
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    @Override
+    protected Response makeRequest(String method, String queryString, RequestBody requestBody, String authBaseString,
+                                   Deadline deadline) throws IOException, BackendClientException {
+        beginUse();
+        String token = this.sessionToken;
+        int generation = this.recoveryGeneration;
+        try {
+            return super.makeRequest(method, queryString, requestBody, authBaseString, deadline);
+        } catch (KernelExpiredException e) {
+            invalidateInfo();
+            if (!this.recoveryEnabled || token == null || !isReplayable(method, queryString, authBaseString)) {
+                throw e;
+            }
+            recover(generation, deadline);
+            String replayBody = this.buildTracker.restoreSkippedBuild(authBaseString);
+            if (replayBody != authBaseString) {
+                authBaseString = replayBody;
+                requestBody = RequestBody.create(JSON, replayBody);
+            }
+            String prefix = String.format("/kernel/%s", token);
+            if (queryString.startsWith(prefix)) {
+                queryString = String.format("/kernel/%s", this.sessionToken) + queryString.substring(prefix.length());
+            }
+            return super.makeRequest(method, queryString, requestBody, authBaseString, deadline);
+        } finally {
+            endUse();
+        }
+    }
+
+    /**
+     * Mark this kernel as busy, e.g., while a request is in flight or a stream is open.
+     * Each call must be paired with {@link #endUse()}.
+     */
+    void beginUse() {
+        synchronized (this.usageLock) {
+            this.activeRequests.incrementAndGet();
+            this.lastUsedMillis = System.currentTimeMillis();
+        }
+    }
+
+    void endUse() {
+        synchronized (this.usageLock) {
+            this.activeRequests.decrementAndGet();
+            this.lastUsedMillis = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Update the last used time without changing the busy state, e.g., when a stream frame arrives.
+     */
+    void touch() {
+        this.lastUsedMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Atomically check that this kernel has been idle for the given time and mark it busy if so,
+     * so that no request starts between the check and the destruction of an idle session.
+     * On success, the caller must call {@link #endUse()} after destroying the session.
+     */
+    boolean claimIfIdle(long idleTimeoutMillis) {
+        synchronized (this.usageLock) {
+            if (this.activeRequests.get() > 0
+                    || System.currentTimeMillis() - this.lastUsedMillis < idleTimeoutMillis) {
+                return false;
+            }
+            this.activeRequests.incrementAndGet();
+            return true;
         }
+    }
 
+    private void invalidateInfo() {
+        SessionInfoCache cache = this.config.getSessionInfoCache();
+        if (cache != null && this.sessionToken != null) {
+            cache.invalidate(this.sessionToken);
+        }
     }
+
     /**
      * Returns the session token/ID set when creating.
      */
@@ -193,6 +742,21 @@ public class Kernel extends APIFunction {
         return this.sessionToken;
     }
 
+    /**
+     * Returns the time when this kernel object last sent or completed a request or stream frame,
+     * in epoch milliseconds.
+     */
+    public long getLastUsedMillis() {
+        return this.lastUsedMillis;
+    }
+
+    /**
+     * Returns true if a request of this kernel object is in flight or one of its streams is open.
+     */
+    public boolean isBusy() {
+        return this.activeRequests.get() > 0;
+    }
+
     /**
      * Returns the kernel type set when creating.
      */
@@ -0,0 +1,93 @@
+package ai.backend.client;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An access key and secret key pair, with the number of sessions it owns and its throttling state.
+ */
+public class Keypair {
+    private final String accessKey;
+    private final String secretKey;
+    private final AtomicInteger reserved = new AtomicInteger();
+    private final Set<String> sessions = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final AtomicLong throttled = new AtomicLong();
+    private volatile long benchedUntilMillis = 0;
+
+    Keypair(String accessKey, String secretKey) {
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+    }
+
+    public String getAccessKey() {
+        return this.accessKey;
+    }
+
+    String getSecretKey() {
+        return this.secretKey;
+    }
+
+    /**
+     * Returns the number of live sessions created with this keypair by this client,
+     * including the sessions being created.
+     */
+    public int getSessionCount() {
+        return this.reserved.get() + this.sessions.size();
+    }
+
+    /**
+     * Returns the number of 429 (Too Many Requests) responses received with this keypair.
+     */
+    public long getThrottledCount() {
+        return this.throttled.get();
+    }
+
+    /**
+     * Returns true if this keypair is temporarily out of rotation because it was throttled.
+     */
+    public boolean isBenched() {
+        return System.currentTimeMillis() < this.benchedUntilMillis;
+    }
+
+    long getBenchedUntilMillis() {
+        return this.benchedUntilMillis;
+    }
+
+    /**
+     * Count a session being created with this keypair.
+     * The reservation is either turned into an owned session with {@link #own(String)} or cancelled.
+     */
+    void reserve() {
+        this.reserved.incrementAndGet();
+    }
+
+    void cancelReservation() {
+        this.reserved.decrementAndGet();
+    }
+
+    /**
+     * Turn a reservation into the given session.
+     * A session shared by several kernel objects is counted once.
+     */
+    void own(String sessionToken) {
+        this.sessions.add(sessionToken);
+        this.reserved.decrementAndGet();
+    }
+
+    void release(String sessionToken) {
+        this.sessions.remove(sessionToken);
+    }
+
+    void bench(long cooldownMillis) {
+        this.throttled.incrementAndGet();
+        this.benchedUntilMillis = System.currentTimeMillis() + cooldownMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Keypair(%s, sessions=%d, benched=%s)", this.accessKey, getSessionCount(), isBenched());
+    }
+}
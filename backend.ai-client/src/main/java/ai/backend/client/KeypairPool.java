@@ -0,0 +1,117 @@
+package ai.backend.client;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The keypairs which new sessions are spread across to stay within per-key quotas.
+ *
+ * Each kernel keeps signing with the keypair that created its session.
+ * A keypair which receives 429 (Too Many Requests) is taken out of rotation for new sessions
+ * until its cooldown passes.
+ */
+public class KeypairPool {
+    public enum Policy {
+        /** Assign new sessions to the keypair owning the fewest live sessions. */
+        LEAST_LOADED,
+        /** Assign new sessions to the keypairs in turn. */
+        ROUND_ROBIN
+    }
+
+    private final List<Keypair> keypairs;
+    private final Policy policy;
+    private final long cooldownMillis;
+    private final AtomicInteger next = new AtomicInteger();
+
+    KeypairPool(List<Keypair> keypairs, Policy policy, long cooldownMillis) {
+        this.keypairs = Collections.unmodifiableList(new ArrayList<Keypair>(keypairs));
+        this.policy = policy;
+        this.cooldownMillis = cooldownMillis;
+    }
+
+    public List<Keypair> getKeypairs() {
+        return this.keypairs;
+    }
+
+    public Policy getPolicy() {
+        return this.policy;
+    }
+
+    /**
+     * Returns the keypair for a new session according to the policy.
+     * If all keypairs are benched, the one whose cooldown ends first is returned.
+     */
+    public Keypair select() {
+        Keypair selected = select(Collections.<Keypair>emptySet());
+        if (selected != null) {
+            return selected;
+        }
+        Keypair earliest = this.keypairs.get(0);
+        for (Keypair keypair : this.keypairs) {
+            if (keypair.getBenchedUntilMillis() < earliest.getBenchedUntilMillis()) {
+                earliest = keypair;
+            }
+        }
+        return earliest;
+    }
+
+    /**
+     * Selects the keypair for a new session like {@link #select()} and reserves it,
+     * so that concurrent session creations see it as loaded.
+     */
+    synchronized Keypair acquire() {
+        Keypair keypair = select();
+        keypair.reserve();
+        return keypair;
+    }
+
+    /**
+     * Selects and reserves a keypair in rotation except the given ones.
+     *
+     * @return The reserved keypair, or null if there is none.
+     */
+    synchronized Keypair acquire(Collection<Keypair> excluded) {
+        Keypair keypair = select(excluded);
+        if (keypair != null) {
+            keypair.reserve();
+        }
+        return keypair;
+    }
+
+    /**
+     * Returns a keypair in rotation except the given ones, or null if there is none.
+     */
+    Keypair select(Collection<Keypair> excluded) {
+        int size = this.keypairs.size();
+        if (this.policy == Policy.ROUND_ROBIN) {
+            int start = this.next.getAndIncrement();
+            for (int i = 0; i < size; i++) {
+                Keypair keypair = this.keypairs.get(((start + i) % size + size) % size);
+                if (!keypair.isBenched() && !excluded.contains(keypair)) {
+                    return keypair;
+                }
+            }
+            return null;
+        }
+        Keypair best = null;
+        for (Keypair keypair : this.keypairs) {
+            if (keypair.isBenched() || excluded.contains(keypair)) {
+                continue;
+            }
+            if (best == null || keypair.getSessionCount() < best.getSessionCount()) {
+                best = keypair;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Take the keypair out of rotation for the cooldown period after a 429 response.
+     */
+    void throttled(Keypair keypair) {
+        keypair.bench(this.cooldownMillis);
+    }
+}
@@ -0,0 +1,84 @@
+package ai.backend.client;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the most recent latency samples in a fixed-size ring buffer and reports simple statistics.
+ * All methods are thread-safe.
+ */
+public class LatencyRecorder {
+    private final long[] samples;
+    private int next = 0;
+    private int size = 0;
+    private long count = 0;
+    private long totalNanos = 0;
+
+    /**
+     * @param capacity The number of recent samples kept for percentile calculation.
+     */
+    public LatencyRecorder(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive.");
+        }
+        this.samples = new long[capacity];
+    }
+
+    public synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        if (size < samples.length) {
+            size++;
+        }
+        count++;
+        totalNanos += nanos;
+    }
+
+    /**
+     * Returns the total number of recorded samples including ones already evicted from the buffer.
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the mean latency of all recorded samples in milliseconds.
+     */
+    public synchronized double getMeanMillis() {
+        if (count == 0) {
+            return 0;
+        }
+        return totalNanos / (double) count / 1e6;
+    }
+
+    /**
+     * Returns the given percentile of the recent samples in nanoseconds, or -1 if there are no samples.
+     *
+     * @param percentile A value between 0 and 100.
+     */
+    public synchronized long getPercentileNanos(double percentile) {
+        if (size == 0) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * size) - 1;
+        return sorted[Math.max(0, Math.min(size - 1, index))];
+    }
+
+    /**
+     * Returns the given percentile of the recent samples in milliseconds, or -1 if there are no samples.
+     *
+     * @param percentile A value between 0 and 100.
+     */
+    public double getPercentileMillis(double percentile) {
+        long nanos = getPercentileNanos(percentile);
+        return nanos < 0 ? -1 : nanos / 1e6;
+    }
+
+    public synchronized void reset() {
+        next = 0;
+        size = 0;
+        count = 0;
+        totalNanos = 0;
+    }
+}
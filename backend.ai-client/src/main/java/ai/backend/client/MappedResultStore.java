@@ -0,0 +1,197 @@
+package ai.backend.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The on-disk tier of {@link ExecutionCache}: an append-only log of results in a memory-mapped file.
+ *
+ * Each record is laid out as [magic][key length][key][expiry][value length][value] and followed by a zero
+ * terminator, so the index can be rebuilt by scanning the file when it is reopened.
+ * When a record does not fit in the remaining space, the live records are compacted to the beginning of the file.
+ * Only if they still leave no room for the new record, the oldest ones are dropped.
+ * This class is not thread-safe; {@link ExecutionCache} guards it with its own lock.
+ */
+class MappedResultStore {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int MAGIC = 0x42414943;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4;
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final Map<String, Location> index = new HashMap<String, Location>();
+
+    private static class Location {
+        /** The offset of the value; the record starts {@link #HEADER_SIZE} plus the key length before it. */
+        final int offset;
+        final int length;
+        final long expiresAt;
+
+        Location(int offset, int length, long expiresAt) {
+            this.offset = offset;
+            this.length = length;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    MappedResultStore(File path, int capacity) throws IOException {
+        this.file = new RandomAccessFile(path, "rw");
+        this.buffer = this.file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        scan();
+    }
+
+    private void scan() {
+        long now = System.currentTimeMillis();
+        int position = 0;
+        while (position + HEADER_SIZE <= this.buffer.capacity() && this.buffer.getInt(position) == MAGIC) {
+            int keyLength = this.buffer.getInt(position + 4);
+            int valueOffset = position + HEADER_SIZE + keyLength;
+            if (keyLength < 0 || valueOffset > this.buffer.capacity()) {
+                break;
+            }
+            long expiresAt = this.buffer.getLong(position + 8 + keyLength);
+            int valueLength = this.buffer.getInt(position + 16 + keyLength);
+            if (valueLength < 0 || valueOffset + valueLength > this.buffer.capacity()) {
+                break;
+            }
+            String key = new String(read(position + 8, keyLength), UTF8);
+            if (expiresAt > now) {
+                this.index.put(key, new Location(valueOffset, valueLength, expiresAt));
+            } else {
+                this.index.remove(key);
+            }
+            position = valueOffset + valueLength;
+        }
+        this.buffer.position(position);
+    }
+
+    private byte[] read(int offset, int length) {
+        ByteBuffer view = this.buffer.duplicate();
+        view.position(offset);
+        byte[] bytes = new byte[length];
+        view.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Returns the stored value, or null if there is no valid record.
+     */
+    String get(String key) {
+        Location location = this.index.get(key);
+        if (location == null) {
+            return null;
+        }
+        if (location.expiresAt <= System.currentTimeMillis()) {
+            this.index.remove(key);
+            return null;
+        }
+        return new String(read(location.offset, location.length), UTF8);
+    }
+
+    /**
+     * Returns the expiry time of the stored value in epoch milliseconds, or 0 if there is no record.
+     */
+    long expiresAt(String key) {
+        Location location = this.index.get(key);
+        return location != null ? location.expiresAt : 0;
+    }
+
+    void put(String key, String value, long expiresAt) {
+        byte[] keyBytes = key.getBytes(UTF8);
+        byte[] valueBytes = value.getBytes(UTF8);
+        int size = HEADER_SIZE + keyBytes.length + valueBytes.length;
+        if (size + 4 > this.buffer.capacity()) {
+            return;
+        }
+        if (this.buffer.position() + size + 4 > this.buffer.capacity()) {
+            this.index.remove(key);
+            compact(size + 4);
+        }
+        append(key, keyBytes, valueBytes, expiresAt);
+    }
+
+    private void append(String key, byte[] keyBytes, byte[] valueBytes, long expiresAt) {
+        this.buffer.putInt(MAGIC).putInt(keyBytes.length).put(keyBytes)
+                .putLong(expiresAt).putInt(valueBytes.length);
+        int valueOffset = this.buffer.position();
+        this.buffer.put(valueBytes);
+        this.buffer.putInt(this.buffer.position(), 0);
+        this.index.put(key, new Location(valueOffset, valueBytes.length, expiresAt));
+    }
+
+    /**
+     * Rewrite the live records from the beginning of the file in their original order,
+     * dropping the oldest ones until the given number of bytes is left free at the end.
+     */
+    private void compact(int reserved) {
+        long now = System.currentTimeMillis();
+        List<Map.Entry<String, Location>> live = new ArrayList<Map.Entry<String, Location>>();
+        int total = 0;
+        for (Map.Entry<String, Location> entry : this.index.entrySet()) {
+            if (entry.getValue().expiresAt > now) {
+                live.add(entry);
+                total += entry.getValue().length + HEADER_SIZE + entry.getKey().getBytes(UTF8).length;
+            }
+        }
+        Collections.sort(live, new Comparator<Map.Entry<String, Location>>() {
+            @Override
+            public int compare(Map.Entry<String, Location> a, Map.Entry<String, Location> b) {
+                return a.getValue().offset < b.getValue().offset ? -1
+                        : (a.getValue().offset == b.getValue().offset ? 0 : 1);
+            }
+        });
+        int first = 0;
+        while (first < live.size() && total + reserved > this.buffer.capacity()) {
+            Map.Entry<String, Location> dropped = live.get(first++);
+            total -= dropped.getValue().length + HEADER_SIZE + dropped.getKey().getBytes(UTF8).length;
+        }
+        // Read all kept records before writing, as the rewritten records overlap the old ones.
+        List<byte[]> values = new ArrayList<byte[]>();
+        for (int i = first; i < live.size(); i++) {
+            Location location = live.get(i).getValue();
+            values.add(read(location.offset, location.length));
+        }
+        List<Map.Entry<String, Location>> kept = new ArrayList<Map.Entry<String, Location>>(live.subList(first, live.size()));
+        this.index.clear();
+        this.buffer.position(0);
+        this.buffer.putInt(0, 0);
+        for (int i = 0; i < kept.size(); i++) {
+            String key = kept.get(i).getKey();
+            append(key, key.getBytes(UTF8), values.get(i), kept.get(i).getValue().expiresAt);
+        }
+    }
+
+    void remove(String key) {
+        if (this.index.containsKey(key)) {
+            // An expired tombstone hides the older record when the file is scanned again.
+            put(key, "", 0);
+            this.index.remove(key);
+        }
+    }
+
+    void clear() {
+        this.index.clear();
+        this.buffer.position(0);
+        this.buffer.putInt(0, 0);
+    }
+
+    int size() {
+        return this.index.size();
+    }
+
+    void close() throws IOException {
+        this.buffer.force();
+        this.file.close();
+    }
+}
@@ -0,0 +1,429 @@
+package ai.backend.client;
+
+import okhttp3.Headers;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.GzipSource;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An OkHttp interceptor which records API traffic to a file or serves previously recorded traffic back offline.
+ *
+ * In record mode, each signed request and its response are passed through and appended to a gzip-compressed
+ * file together with the time offset and the latency of the exchange. Exchanges which fail with an
+ * {@link IOException}, such as a refused connection or a timeout, are recorded with the exception.
+ * In replay mode, no network access is made: each request is answered with the next recorded response for the
+ * same method and path, or fails with the recorded exception. The answer is delayed by the recorded latency
+ * divided by the speed factor, and is also held until the recorded time offset of the exchange (divided by
+ * the speed factor) has passed since the first replayed request, so that a client faster than the recorded one
+ * sees the recorded arrival pattern. A slower client is answered after the latency only.
+ * Optionally, replayed requests are checked against the keypairs of a {@link ClientConfig} and answered with
+ * 401 if their signature does not match, as the manager would.
+ *
+ * Install it with {@link ClientConfig.Builder#addInterceptor(Interceptor)}. WebSocket upgrades are not recorded.
+ */
+public class RecordReplayInterceptor implements Interceptor, Closeable {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int MAGIC = 0x42414952;
+    private static final int VERSION = 2;
+    private static final MediaType PROBLEM_JSON = MediaType.parse("application/problem+json");
+
+    private final DataOutputStream output;
+    private final Map<String, LinkedList<Exchange>> recorded;
+    private final double speed;
+    private final long startedNanos = System.nanoTime();
+    private final AtomicLong replayStartedNanos = new AtomicLong();
+    private final AtomicLong exchangeCount = new AtomicLong();
+    private volatile ClientConfig validationConfig = null;
+
+    private static class Exchange {
+        long offsetNanos;
+        long latencyNanos;
+        String method;
+        String path;
+        Headers requestHeaders;
+        byte[] requestBody;
+        int code;
+        String message;
+        Headers responseHeaders;
+        byte[] responseBody;
+        /** The class name of the exception which failed the exchange, or null if a response arrived. */
+        String errorClass;
+        String errorMessage;
+    }
+
+    private RecordReplayInterceptor(DataOutputStream output, Map<String, LinkedList<Exchange>> recorded,
+                                    double speed) {
+        this.output = output;
+        this.recorded = recorded;
+        this.speed = speed;
+    }
+
+    /**
+     * Create an interceptor which records all exchanges to the given file, overwriting it.
+     */
+    public static RecordReplayInterceptor record(File file) throws IOException {
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(new FileOutputStream(file))));
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        return new RecordReplayInterceptor(output, null, 0);
+    }
+
+    /**
+     * Create an interceptor which serves the exchanges recorded in the given file.
+     *
+     * @param speed The replay speed relative to the recording: 1 replays the recorded latencies, 2 halves them,
+     *              and 0 answers immediately.
+     */
+    public static RecordReplayInterceptor replay(File file, double speed) throws IOException {
+        if (speed < 0) {
+            throw new IllegalArgumentException("speed must not be negative.");
+        }
+        Map<String, LinkedList<Exchange>> recorded = new HashMap<String, LinkedList<Exchange>>();
+        DataInputStream input = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(file))));
+        try {
+            int version = input.readInt() == MAGIC ? input.readInt() : -1;
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Not a recording of a supported version: " + file);
+            }
+            long firstOffset = -1;
+            while (true) {
+                Exchange exchange;
+                try {
+                    exchange = readExchange(input, version);
+                } catch (EOFException e) {
+                    break;
+                }
+                // Offsets are relative to the creation of the recorder; make them relative to the first exchange.
+                if (firstOffset < 0) {
+                    firstOffset = exchange.offsetNanos;
+                }
+                exchange.offsetNanos -= firstOffset;
+                String key = exchange.method + " " + exchange.path;
+                LinkedList<Exchange> queue = recorded.get(key);
+                if (queue == null) {
+                    queue = new LinkedList<Exchange>();
+                    recorded.put(key, queue);
+                }
+                queue.add(exchange);
+            }
+        } finally {
+            input.close();
+        }
+        return new RecordReplayInterceptor(null, recorded, speed);
+    }
+
+    /**
+     * Check the signature of each replayed request against the keypairs and endpoints of the given configuration.
+     * It may be set after the configuration using this interceptor has been built.
+     */
+    public RecordReplayInterceptor validateSignatures(ClientConfig config) {
+        this.validationConfig = config;
+        return this;
+    }
+
+    public boolean isRecording() {
+        return this.output != null;
+    }
+
+    /**
+     * Returns the number of exchanges recorded or replayed so far.
+     */
+    public long getExchangeCount() {
+        return this.exchangeCount.get();
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (isRecording()) {
+            if (request.header("Upgrade") != null) {
+                return chain.proceed(request);
+            }
+            return recordExchange(chain, request);
+        }
+        return replayExchange(request);
+    }
+
+    private Response recordExchange(Chain chain, Request request) throws IOException {
+        Exchange exchange = new Exchange();
+        exchange.offsetNanos = System.nanoTime() - this.startedNanos;
+        exchange.method = request.method();
+        exchange.path = pathOf(request);
+        exchange.requestHeaders = request.headers();
+        exchange.requestBody = bodyOf(request);
+        long started = System.nanoTime();
+        Response response;
+        ResponseBody body;
+        try {
+            response = chain.proceed(request);
+            body = response.body();
+            exchange.responseBody = body != null ? body.bytes() : new byte[0];
+        } catch (IOException e) {
+            exchange.latencyNanos = System.nanoTime() - started;
+            exchange.errorClass = e.getClass().getName();
+            exchange.errorMessage = e.getMessage();
+            append(exchange);
+            throw e;
+        }
+        exchange.latencyNanos = System.nanoTime() - started;
+        exchange.code = response.code();
+        exchange.message = response.message();
+        exchange.responseHeaders = response.headers();
+        append(exchange);
+        MediaType contentType = body != null ? body.contentType() : null;
+        return response.newBuilder().body(ResponseBody.create(contentType, exchange.responseBody)).build();
+    }
+
+    private void append(Exchange exchange) throws IOException {
+        synchronized (this.output) {
+            writeExchange(this.output, exchange);
+        }
+        this.exchangeCount.incrementAndGet();
+    }
+
+    private Response replayExchange(Request request) throws IOException {
+        String key = request.method() + " " + pathOf(request);
+        Exchange exchange;
+        synchronized (this.recorded) {
+            LinkedList<Exchange> queue = this.recorded.get(key);
+            exchange = queue != null ? queue.poll() : null;
+        }
+        if (exchange == null) {
+            throw new IOException("No recorded response for " + key);
+        }
+        long now = System.nanoTime();
+        this.replayStartedNanos.compareAndSet(0, now);
+        if (this.speed > 0) {
+            long elapsed = now - this.replayStartedNanos.get();
+            long delay = Math.max((long) (exchange.latencyNanos / this.speed),
+                    (long) ((exchange.offsetNanos + exchange.latencyNanos) / this.speed) - elapsed);
+            try {
+                Thread.sleep(delay / 1000000, (int) (delay % 1000000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while replaying " + key);
+            }
+        }
+        this.exchangeCount.incrementAndGet();
+        if (exchange.errorClass != null) {
+            throw recreateError(exchange);
+        }
+        Response.Builder builder = new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1);
+        ClientConfig config = this.validationConfig;
+        if (config != null && !hasValidSignature(config, request)) {
+            return builder.code(401).message("Unauthorized")
+                    .header("Content-Type", PROBLEM_JSON.toString())
+                    .body(ResponseBody.create(PROBLEM_JSON, "{\"title\": \"Signature mismatch\"}"))
+                    .build();
+        }
+        String contentType = exchange.responseHeaders.get("Content-Type");
+        return builder.code(exchange.code).message(exchange.message)
+                .headers(exchange.responseHeaders)
+                .body(ResponseBody.create(contentType != null ? MediaType.parse(contentType) : null,
+                        exchange.responseBody))
+                .build();
+    }
+
+    /**
+     * Recreate the recorded exception, so that callers telling failures apart by type behave as recorded.
+     * It falls back to a plain {@link IOException} if the type cannot be instantiated with a message.
+     */
+    private static IOException recreateError(Exchange exchange) {
+        try {
+            Class<?> type = Class.forName(exchange.errorClass);
+            if (IOException.class.isAssignableFrom(type)) {
+                return (IOException) type.getConstructor(String.class).newInstance(exchange.errorMessage);
+            }
+        } catch (Exception e) {
+            // Use the fallback below.
+        }
+        return new IOException(exchange.errorMessage);
+    }
+
+    /**
+     * Recompute the credential of the request in the same way as {@link APIFunction} signs it.
+     */
+    private static boolean hasValidSignature(ClientConfig config, Request request) throws IOException {
+        String authorization = request.header("Authorization");
+        String contentType = request.header("Content-Type");
+        String dateString = request.header("Date");
+        if (authorization == null || contentType == null || dateString == null) {
+            return false;
+        }
+        int begin = authorization.indexOf("credential=");
+        int colon = authorization.indexOf(':', begin);
+        if (begin < 0 || colon < 0) {
+            return false;
+        }
+        String accessKey = authorization.substring(begin + "credential=".length(), colon);
+        Keypair keypair = null;
+        for (Keypair k : config.getKeypairPool().getKeypairs()) {
+            if (k.getAccessKey().equals(accessKey)) {
+                keypair = k;
+            }
+        }
+        Endpoint endpoint = null;
+        String url = request.url().toString();
+        for (Endpoint e : config.getEndpointPool().getEndpoints()) {
+            if (url.startsWith(e.getUrl())) {
+                endpoint = e;
+            }
+        }
+        if (keypair == null || endpoint == null) {
+            return false;
+        }
+        Date date;
+        try {
+            SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+            format.setTimeZone(TimeZone.getTimeZone("GMT+0"));
+            date = format.parse(dateString.replace("+00:00", ""));
+        } catch (ParseException e) {
+            return false;
+        }
+        MediaType mediaType = MediaType.parse(contentType);
+        if (mediaType == null) {
+            return false;
+        }
+        // The signature covers the uncompressed body, and multipart uploads are signed with an empty body.
+        String signedBody = "";
+        if (!mediaType.type().equals("multipart")) {
+            Buffer body = new Buffer();
+            body.write(bodyOf(request));
+            if ("gzip".equals(request.header("Content-Encoding"))) {
+                Buffer inflated = new Buffer();
+                inflated.writeAll(new GzipSource(body));
+                body = inflated;
+            }
+            signedBody = body.readString(UTF8);
+        }
+        String credential = new Auth(config, keypair, endpoint).getCredentialString(request.method(),
+                pathOf(request), date, String.format("%s/%s", mediaType.type(), mediaType.subtype()), signedBody);
+        return authorization.endsWith("credential=" + credential);
+    }
+
+    private static String pathOf(Request request) {
+        String query = request.url().encodedQuery();
+        return query != null ? request.url().encodedPath() + "?" + query : request.url().encodedPath();
+    }
+
+    private static byte[] bodyOf(Request request) throws IOException {
+        if (request.body() == null) {
+            return new byte[0];
+        }
+        Buffer buffer = new Buffer();
+        request.body().writeTo(buffer);
+        return buffer.readByteArray();
+    }
+
+    private static void writeExchange(DataOutputStream out, Exchange exchange) throws IOException {
+        out.writeLong(exchange.offsetNanos);
+        out.writeLong(exchange.latencyNanos);
+        out.writeUTF(exchange.method);
+        out.writeUTF(exchange.path);
+        writeHeaders(out, exchange.requestHeaders);
+        writeBytes(out, exchange.requestBody);
+        out.writeBoolean(exchange.errorClass != null);
+        if (exchange.errorClass != null) {
+            out.writeUTF(exchange.errorClass);
+            out.writeUTF(exchange.errorMessage != null ? exchange.errorMessage : "");
+            return;
+        }
+        out.writeShort(exchange.code);
+        out.writeUTF(exchange.message);
+        writeHeaders(out, exchange.responseHeaders);
+        writeBytes(out, exchange.responseBody);
+    }
+
+    private static Exchange readExchange(DataInputStream in, int version) throws IOException {
+        Exchange exchange = new Exchange();
+        exchange.offsetNanos = in.readLong();
+        exchange.latencyNanos = in.readLong();
+        exchange.method = in.readUTF();
+        exchange.path = in.readUTF();
+        exchange.requestHeaders = readHeaders(in);
+        exchange.requestBody = readBytes(in);
+        // Version 1 recorded successful exchanges only.
+        if (version >= 2 && in.readBoolean()) {
+            exchange.errorClass = in.readUTF();
+            exchange.errorMessage = in.readUTF();
+            return exchange;
+        }
+        exchange.code = in.readShort();
+        exchange.message = in.readUTF();
+        exchange.responseHeaders = readHeaders(in);
+        exchange.responseBody = readBytes(in);
+        return exchange;
+    }
+
+    private static void writeHeaders(DataOutputStream out, Headers headers) throws IOException {
+        out.writeShort(headers.size());
+        for (int i = 0; i < headers.size(); i++) {
+            out.writeUTF(headers.name(i));
+            out.writeUTF(headers.value(i));
+        }
+    }
+
+    private static Headers readHeaders(DataInputStream in) throws IOException {
+        Headers.Builder builder = new Headers.Builder();
+        int count = in.readShort();
+        for (int i = 0; i < count; i++) {
+            builder.add(in.readUTF(), in.readUTF());
+        }
+        return builder.build();
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Finish the recording file. This does nothing in replay mode.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.output != null) {
+            synchronized (this.output) {
+                this.output.close();
+            }
+        }
+    }
+}
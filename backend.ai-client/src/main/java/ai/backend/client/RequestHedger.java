@@ -0,0 +1,261 @@
+package ai.backend.client;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends a second copy of an idempotent request when the first one has not been answered within
+ * a percentile of the recent latency, and returns whichever answer arrives first.
+ *
+ * The original request runs on the calling thread. The hedged copy is signed anew and sent asynchronously
+ * through a separate client with its own connection pool, so that it does not wait behind a stalled connection,
+ * and its own dispatcher threads, so that it does not depend on the configured executor which the caller may
+ * be running on. The number of hedges is limited by a token-bucket budget:
+ * each request earns {@code budgetRatio} tokens and each hedge spends one.
+ */
+class RequestHedger {
+    private static final int MIN_SAMPLES = 20;
+    private static final double MAX_TOKENS = 10;
+
+    private final double percentile;
+    private final double budgetRatio;
+    private final ClientMetrics metrics;
+    private final LatencyRecorder latency = new LatencyRecorder(512);
+    private double tokens = 0;
+    private OkHttpClient hedgeClient = null;
+
+    interface RequestFactory {
+        Request newRequest() throws IOException;
+    }
+
+    RequestHedger(double percentile, double budgetRatio, ClientMetrics metrics) {
+        this.percentile = percentile;
+        this.budgetRatio = budgetRatio;
+        this.metrics = metrics;
+    }
+
+    LatencyRecorder getLatency() {
+        return latency;
+    }
+
+    Response execute(final OkHttpClient client, Request request, final RequestFactory factory, Deadline deadline)
+            throws IOException {
+        long started = System.nanoTime();
+        long delay = hedgeDelayNanos();
+        deposit();
+        final Race race = new Race();
+        ScheduledFuture<?> timeout = null;
+        ScheduledFuture<?> hedging = null;
+        if (deadline != null) {
+            timeout = ClientExecutors.timer().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    race.cancelAll();
+                }
+            }, deadline.timeRemaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        }
+        try {
+            Call primary = client.newCall(request);
+            if (race.add(primary)) {
+                if (delay >= 0) {
+                    hedging = ClientExecutors.timer().schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            hedge(client, factory, race);
+                        }
+                    }, delay, TimeUnit.NANOSECONDS);
+                }
+                try {
+                    race.offer(primary, primary.execute());
+                } catch (IOException e) {
+                    race.fail(e);
+                }
+            }
+            if (hedging != null) {
+                hedging.cancel(false);
+            }
+            try {
+                race.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                race.cancelAll();
+                throw new InterruptedIOException("Interrupted while waiting for the response.");
+            }
+            Response winner = race.finish();
+            if (race.winnerCall() != primary) {
+                this.metrics.recordHedgeWin();
+            }
+            this.latency.record(System.nanoTime() - started);
+            return deadline != null ? APIFunction.readFully(winner) : winner;
+        } finally {
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Send the hedged copy if the race is still undecided and the budget allows it.
+     */
+    private void hedge(OkHttpClient client, RequestFactory factory, Race race) {
+        if (race.isDecided() || !withdraw()) {
+            return;
+        }
+        Call hedge;
+        try {
+            hedge = hedgeClient(client).newCall(factory.newRequest());
+        } catch (IOException e) {
+            return;
+        }
+        if (race.add(hedge)) {
+            this.metrics.recordHedge();
+            race.enqueue(hedge);
+        }
+    }
+
+    private long hedgeDelayNanos() {
+        if (this.latency.getCount() < MIN_SAMPLES) {
+            return -1;
+        }
+        return this.latency.getPercentileNanos(this.percentile);
+    }
+
+    private synchronized void deposit() {
+        this.tokens = Math.min(MAX_TOKENS, this.tokens + this.budgetRatio);
+    }
+
+    private synchronized boolean withdraw() {
+        if (this.tokens < 1) {
+            this.metrics.recordHedgeBudgetExhausted();
+            return false;
+        }
+        this.tokens -= 1;
+        return true;
+    }
+
+    private synchronized OkHttpClient hedgeClient(OkHttpClient client) {
+        if (this.hedgeClient == null) {
+            this.hedgeClient = client.newBuilder()
+                    .connectionPool(new ConnectionPool())
+                    .dispatcher(new Dispatcher(ClientExecutors.newCachedDaemonPool("backend.ai-client-hedge")))
+                    .build();
+        }
+        return this.hedgeClient;
+    }
+
+    /**
+     * Collects the outcomes of the competing calls. The first response wins; the other calls are cancelled
+     * and their late responses are closed.
+     */
+    private static class Race {
+        private final List<Call> calls = new ArrayList<Call>();
+        private int pending = 0;
+        private Response winner = null;
+        private Call winnerCall = null;
+        private IOException error = null;
+        private boolean closed = false;
+
+        /**
+         * Register a call which will report its outcome to this race.
+         *
+         * @return false if the race is already decided or cancelled, so the call should not be sent.
+         */
+        synchronized boolean add(Call call) {
+            if (this.closed || this.winner != null) {
+                return false;
+            }
+            this.calls.add(call);
+            this.pending++;
+            return true;
+        }
+
+        void enqueue(Call call) {
+            call.enqueue(new Callback() {
+                @Override
+                public void onResponse(Call call, Response response) {
+                    offer(call, response);
+                }
+
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    fail(e);
+                }
+            });
+        }
+
+        synchronized void offer(Call call, Response response) {
+            this.pending--;
+            if (this.winner == null && !this.closed) {
+                this.winner = response;
+                this.winnerCall = call;
+                // Unblock the calling thread if the hedge wins over the original request.
+                for (Call other : this.calls) {
+                    if (other != call) {
+                        other.cancel();
+                    }
+                }
+            } else {
+                response.close();
+            }
+            notifyAll();
+        }
+
+        synchronized void fail(IOException e) {
+            this.pending--;
+            if (this.error == null) {
+                this.error = e;
+            }
+            notifyAll();
+        }
+
+        synchronized boolean isDecided() {
+            return this.closed || this.winner != null || this.pending == 0;
+        }
+
+        /**
+         * Wait until a response arrives or all calls fail.
+         */
+        synchronized void await() throws InterruptedException {
+            while (this.winner == null && this.pending > 0) {
+                wait();
+            }
+        }
+
+        synchronized Response finish() throws IOException {
+            this.closed = true;
+            for (Call call : this.calls) {
+                if (call != this.winnerCall) {
+                    call.cancel();
+                }
+            }
+            if (this.winner == null) {
+                throw this.error != null ? this.error : new InterruptedIOException("The request was cancelled.");
+            }
+            return this.winner;
+        }
+
+        synchronized Call winnerCall() {
+            return this.winnerCall;
+        }
+
+        synchronized void cancelAll() {
+            this.closed = true;
+            for (Call call : this.calls) {
+                call.cancel();
+            }
+            notifyAll();
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package ai.backend.client;
+
+import ai.backend.client.values.ResourceUsage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An in-process aggregation of the resource usage reported for sessions and executions, per kernel type.
+ *
+ * Kernels record the usage reported by {@link Kernel#destroy()} and by the final result of each run
+ * when the configuration has a registry. The aggregates help to size session pools, choose resource limits and spot workload regressions.
+ * Recording does not allocate once a kernel type has been seen. All methods are thread-safe.
+ */
+public class ResourceUsageRegistry {
+    private final ConcurrentMap<String, Aggregate> aggregates = new ConcurrentHashMap<String, Aggregate>();
+
+    /**
+     * A snapshot of the aggregated usage of a kernel type. Values which were never reported are -1.
+     */
+    public static final class Summary {
+        private final String kernelType;
+        private final long sessionCount;
+        private final long executionCount;
+        private final long totalCpuMillis;
+        private final long maxCpuMillis;
+        private final double meanCpuMillis;
+        private final long maxMemBytes;
+        private final double meanMemMaxBytes;
+        private final long totalNetRxBytes;
+        private final long totalNetTxBytes;
+        private final long totalIoReadBytes;
+        private final long totalIoWriteBytes;
+        private final long maxScratchSize;
+        private final long totalExecutionCpuMillis;
+        private final long maxExecutionCpuMillis;
+
+        private Summary(String kernelType, Aggregate a) {
+            this.kernelType = kernelType;
+            this.sessionCount = a.sessions;
+            this.executionCount = a.executions;
+            this.totalCpuMillis = a.cpuCount > 0 ? a.cpuTotal : -1;
+            this.maxCpuMillis = a.cpuCount > 0 ? a.cpuMax : -1;
+            this.meanCpuMillis = a.cpuCount > 0 ? a.cpuTotal / (double) a.cpuCount : -1;
+            this.maxMemBytes = a.memCount > 0 ? a.memMax : -1;
+            this.meanMemMaxBytes = a.memCount > 0 ? a.memTotal / (double) a.memCount : -1;
+            this.totalNetRxBytes = a.netRx;
+            this.totalNetTxBytes = a.netTx;
+            this.totalIoReadBytes = a.ioRead;
+            this.totalIoWriteBytes = a.ioWrite;
+            this.maxScratchSize = a.scratchMax;
+            this.totalExecutionCpuMillis = a.execCpuCount > 0 ? a.execCpuTotal : -1;
+            this.maxExecutionCpuMillis = a.execCpuCount > 0 ? a.execCpuMax : -1;
+        }
+
+        public String getKernelType() {
+            return kernelType;
+        }
+
+        /**
+         * Returns the number of destroyed sessions whose usage was recorded.
+         */
+        public long getSessionCount() {
+            return sessionCount;
+        }
+
+        /**
+         * Returns the number of finished runs whose usage was reported.
+         */
+        public long getExecutionCount() {
+            return executionCount;
+        }
+
+        public long getTotalCpuMillis() {
+            return totalCpuMillis;
+        }
+
+        public long getMaxCpuMillis() {
+            return maxCpuMillis;
+        }
+
+        /**
+         * Returns the mean CPU time per session in milliseconds.
+         */
+        public double getMeanCpuMillis() {
+            return meanCpuMillis;
+        }
+
+        /**
+         * Returns the largest peak memory among the sessions in bytes.
+         */
+        public long getMaxMemBytes() {
+            return maxMemBytes;
+        }
+
+        /**
+         * Returns the mean peak memory per session in bytes.
+         */
+        public double getMeanMemMaxBytes() {
+            return meanMemMaxBytes;
+        }
+
+        public long getTotalNetRxBytes() {
+            return totalNetRxBytes;
+        }
+
+        public long getTotalNetTxBytes() {
+            return totalNetTxBytes;
+        }
+
+        public long getTotalIoReadBytes() {
+            return totalIoReadBytes;
+        }
+
+        public long getTotalIoWriteBytes() {
+            return totalIoWriteBytes;
+        }
+
+        public long getMaxScratchSize() {
+            return maxScratchSize;
+        }
+
+        public long getTotalExecutionCpuMillis() {
+            return totalExecutionCpuMillis;
+        }
+
+        public long getMaxExecutionCpuMillis() {
+            return maxExecutionCpuMillis;
+        }
+    }
+
+    private static class Aggregate {
+        long sessions;
+        long executions;
+        long cpuCount;
+        long cpuTotal;
+        long cpuMax;
+        long memCount;
+        long memTotal;
+        long memMax;
+        long netRx = -1;
+        long netTx = -1;
+        long ioRead = -1;
+        long ioWrite = -1;
+        long scratchMax = -1;
+        long execCpuCount;
+        long execCpuTotal;
+        long execCpuMax;
+
+        private static long add(long total, long value) {
+            if (value < 0) {
+                return total;
+            }
+            return total < 0 ? value : total + value;
+        }
+
+        synchronized void addSession(ResourceUsage usage) {
+            sessions++;
+            if (usage.getCpuUsedMillis() >= 0) {
+                cpuCount++;
+                cpuTotal += usage.getCpuUsedMillis();
+                cpuMax = Math.max(cpuMax, usage.getCpuUsedMillis());
+            }
+            if (usage.getMemMaxBytes() >= 0) {
+                memCount++;
+                memTotal += usage.getMemMaxBytes();
+                memMax = Math.max(memMax, usage.getMemMaxBytes());
+            }
+            netRx = add(netRx, usage.getNetRxBytes());
+            netTx = add(netTx, usage.getNetTxBytes());
+            ioRead = add(ioRead, usage.getIoReadBytes());
+            ioWrite = add(ioWrite, usage.getIoWriteBytes());
+            scratchMax = Math.max(scratchMax, usage.getIoMaxScratchSize());
+        }
+
+        synchronized void addExecution(ResourceUsage usage) {
+            executions++;
+            if (usage.getCpuUsedMillis() >= 0) {
+                execCpuCount++;
+                execCpuTotal += usage.getCpuUsedMillis();
+                execCpuMax = Math.max(execCpuMax, usage.getCpuUsedMillis());
+            }
+        }
+
+        synchronized Summary snapshot(String kernelType) {
+            return new Summary(kernelType, this);
+        }
+    }
+
+    private Aggregate aggregateOf(String kernelType) {
+        Aggregate aggregate = aggregates.get(kernelType);
+        if (aggregate == null) {
+            Aggregate created = new Aggregate();
+            aggregate = aggregates.putIfAbsent(kernelType, created);
+            if (aggregate == null) {
+                aggregate = created;
+            }
+        }
+        return aggregate;
+    }
+
+    /**
+     * Record the usage of a whole session, usually returned when it is destroyed.
+     */
+    public void recordSession(String kernelType, ResourceUsage usage) {
+        if (usage != null) {
+            aggregateOf(kernelType).addSession(usage);
+        }
+    }
+
+    /**
+     * Record the usage of a single run, reported with its final result.
+     */
+    public void recordExecution(String kernelType, ResourceUsage usage) {
+        if (usage != null) {
+            aggregateOf(kernelType).addExecution(usage);
+        }
+    }
+
+    /**
+     * Returns the aggregated usage of the given kernel type, or null if nothing was recorded for it.
+     */
+    public Summary getSummary(String kernelType) {
+        Aggregate aggregate = aggregates.get(kernelType);
+        return aggregate != null ? aggregate.snapshot(kernelType) : null;
+    }
+
+    /**
+     * Returns the aggregated usage of all kernel types recorded so far.
+     */
+    public List<Summary> getSummaries() {
+        List<Summary> summaries = new ArrayList<Summary>();
+        for (String kernelType : aggregates.keySet()) {
+            summaries.add(getSummary(kernelType));
+        }
+        return summaries;
+    }
+
+    public void reset() {
+        aggregates.clear();
+    }
+}
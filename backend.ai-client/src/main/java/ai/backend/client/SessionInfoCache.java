@@ -0,0 +1,126 @@
+package ai.backend.client;
+
+import ai.backend.client.values.SessionInfo;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A size-bounded LRU cache of session metadata keyed by session token.
+ * Entries expire after the configured TTL.
+ * A single cache may be shared by all kernels created with the same {@link ClientConfig}.
+ * All methods are thread-safe.
+ */
+public class SessionInfoCache {
+    private final long ttlMillis;
+    private final int maxSize;
+    private final LinkedHashMap<String, CacheEntry> entries;
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+    private long invalidationCount = 0;
+
+    /**
+     * @param ttlMillis How long an entry stays valid after it is stored, in milliseconds.
+     * @param maxSize The maximum number of entries. The least recently used entry is evicted when exceeded.
+     */
+    public SessionInfoCache(long ttlMillis, final int maxSize) {
+        if (ttlMillis <= 0 || maxSize <= 0) {
+            throw new IllegalArgumentException("ttlMillis and maxSize must be positive.");
+        }
+        this.ttlMillis = ttlMillis;
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                if (size() > SessionInfoCache.this.maxSize) {
+                    evictionCount++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached metadata, or null if there is no valid entry.
+     */
+    public synchronized SessionInfo get(String sessionToken) {
+        CacheEntry entry = entries.get(sessionToken);
+        if (entry != null && entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(sessionToken);
+            entry = null;
+        }
+        if (entry == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return entry.info;
+    }
+
+    public synchronized void put(String sessionToken, SessionInfo info) {
+        entries.put(sessionToken, new CacheEntry(info, System.currentTimeMillis() + ttlMillis));
+    }
+
+    /**
+     * Returns a stamp to pass to {@link #putIfNotInvalidated} when starting to fetch the metadata.
+     */
+    synchronized long stamp() {
+        return invalidationCount;
+    }
+
+    /**
+     * Store the metadata unless any entry was invalidated since the stamp was taken,
+     * so that a fetch racing with an invalidation does not put stale metadata back for the whole TTL.
+     */
+    synchronized void putIfNotInvalidated(String sessionToken, SessionInfo info, long stamp) {
+        if (stamp == invalidationCount) {
+            put(sessionToken, info);
+        }
+    }
+
+    public synchronized void invalidate(String sessionToken) {
+        invalidationCount++;
+        entries.remove(sessionToken);
+    }
+
+    public synchronized void clear() {
+        invalidationCount++;
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    private static class CacheEntry {
+        final SessionInfo info;
+        final long expiresAt;
+
+        CacheEntry(SessionInfo info, long expiresAt) {
+            this.info = info;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
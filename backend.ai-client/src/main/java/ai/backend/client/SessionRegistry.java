@@ -0,0 +1,298 @@
+package ai.backend.client;
+
+import ai.backend.client.exceptions.KernelExpiredException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the kernels created through {@link Kernel#getOrCreateInstance} with a {@link ClientConfig} that has
+ * this registry, and destroys sessions left idle for longer than the idle timeout.
+ *
+ * Idle sessions are reaped in batches by a background thread; the sessions in a batch are destroyed in parallel
+ * by a pool of worker threads which time out when unused. Kernels with a request in flight are never reaped.
+ * Optionally, a JVM shutdown hook destroys all remaining sessions within a deadline.
+ */
+public class SessionRegistry {
+    private final long idleTimeoutMillis;
+    private final long checkIntervalMillis;
+    private final int batchSize;
+    private final long shutdownDeadlineMillis;
+    private final boolean shutdownHook;
+    private final Set<Kernel> kernels = Collections.newSetFromMap(new ConcurrentHashMap<Kernel, Boolean>());
+    private final AtomicLong reapedCount = new AtomicLong();
+    private ScheduledExecutorService reaper = null;
+    private Thread hook = null;
+    private ThreadPoolExecutor destroyPool = null;
+
+    private SessionRegistry(Builder builder) {
+        this.idleTimeoutMillis = builder.idleTimeoutMillis;
+        this.checkIntervalMillis = builder.checkIntervalMillis;
+        this.batchSize = builder.batchSize;
+        this.shutdownDeadlineMillis = builder.shutdownDeadlineMillis;
+        this.shutdownHook = builder.shutdownHook;
+    }
+
+    void register(Kernel kernel) {
+        this.kernels.add(kernel);
+        start();
+    }
+
+    void unregister(Kernel kernel) {
+        this.kernels.remove(kernel);
+    }
+
+    private synchronized void start() {
+        if (this.reaper == null && this.idleTimeoutMillis > 0) {
+            this.reaper = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "backend.ai-session-reaper");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            this.reaper.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    reapIdle();
+                }
+            }, this.checkIntervalMillis, this.checkIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        if (this.hook == null && this.shutdownHook) {
+            this.hook = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    destroyAll(shutdownDeadlineMillis);
+                }
+            }, "backend.ai-session-shutdown");
+            Runtime.getRuntime().addShutdownHook(this.hook);
+        }
+    }
+
+    /**
+     * Destroy the sessions idle for longer than the idle timeout.
+     * This is called periodically by the background reaper, but may also be called directly.
+     * It does nothing if the idle timeout is zero.
+     *
+     * @return The number of sessions destroyed.
+     */
+    public int reapIdle() {
+        if (this.idleTimeoutMillis == 0) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        List<Kernel> idle = new ArrayList<Kernel>();
+        for (Kernel kernel : this.kernels) {
+            if (!kernel.isBusy() && now - kernel.getLastUsedMillis() >= this.idleTimeoutMillis) {
+                idle.add(kernel);
+            }
+        }
+        Collections.sort(idle, new Comparator<Kernel>() {
+            @Override
+            public int compare(Kernel a, Kernel b) {
+                return a.getLastUsedMillis() < b.getLastUsedMillis() ? -1
+                        : (a.getLastUsedMillis() == b.getLastUsedMillis() ? 0 : 1);
+            }
+        });
+        int destroyed = 0;
+        for (int i = 0; i < idle.size(); i += this.batchSize) {
+            List<Kernel> batch = idle.subList(i, Math.min(idle.size(), i + this.batchSize));
+            destroyed += destroy(batch, Long.MAX_VALUE, true);
+        }
+        this.reapedCount.addAndGet(destroyed);
+        return destroyed;
+    }
+
+    /**
+     * Destroy all tracked sessions in parallel, waiting at most the given deadline.
+     *
+     * @return The number of sessions destroyed within the deadline.
+     */
+    public int destroyAll(long deadlineMillis) {
+        return destroy(new ArrayList<Kernel>(this.kernels), deadlineMillis, false);
+    }
+
+    /**
+     * @param onlyIdle If true, a session is destroyed only if it is still idle right before the request,
+     *                 and it is held busy meanwhile so that no other request starts on it.
+     */
+    private int destroy(List<Kernel> batch, long deadlineMillis, final boolean onlyIdle) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        ExecutorService pool = destroyPool();
+        List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+        for (final Kernel kernel : batch) {
+            futures.add(pool.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    if (onlyIdle && !kernel.claimIfIdle(idleTimeoutMillis)) {
+                        // Used again since the idle check.
+                        return false;
+                    }
+                    try {
+                        kernel.destroy();
+                    } catch (KernelExpiredException e) {
+                        // Already gone on the server side.
+                        unregister(kernel);
+                    } finally {
+                        if (onlyIdle) {
+                            kernel.endUse();
+                        }
+                    }
+                    return true;
+                }
+            }));
+        }
+        long deadline = deadlineMillis == Long.MAX_VALUE
+                ? Long.MAX_VALUE : System.currentTimeMillis() + deadlineMillis;
+        int destroyed = 0;
+        for (Future<Boolean> future : futures) {
+            try {
+                long remaining = deadline == Long.MAX_VALUE
+                        ? Long.MAX_VALUE : Math.max(0, deadline - System.currentTimeMillis());
+                if (future.get(remaining, TimeUnit.MILLISECONDS)) {
+                    destroyed++;
+                }
+            } catch (TimeoutException e) {
+                future.cancel(true);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                // Other failures are retried in the next round.
+            }
+        }
+        return destroyed;
+    }
+
+    /**
+     * Returns the pool destroying sessions in parallel, creating it on first use.
+     * It has its own threads as the configured executors may be already shut down when the JVM exits.
+     */
+    private synchronized ExecutorService destroyPool() {
+        if (this.destroyPool == null) {
+            this.destroyPool = new ThreadPoolExecutor(this.batchSize, this.batchSize, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "backend.ai-session-destroy");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            this.destroyPool.allowCoreThreadTimeOut(true);
+        }
+        return this.destroyPool;
+    }
+
+    /**
+     * Stop the background reaper and the destroying threads, and remove the shutdown hook.
+     * Tracked sessions are left as they are.
+     */
+    public synchronized void close() {
+        if (this.reaper != null) {
+            this.reaper.shutdownNow();
+            this.reaper = null;
+        }
+        if (this.destroyPool != null) {
+            this.destroyPool.shutdown();
+            this.destroyPool = null;
+        }
+        if (this.hook != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(this.hook);
+            } catch (IllegalStateException e) {
+                // The JVM is already shutting down.
+            }
+            this.hook = null;
+        }
+    }
+
+    /**
+     * Returns the number of tracked sessions.
+     */
+    public int size() {
+        return this.kernels.size();
+    }
+
+    public boolean contains(Kernel kernel) {
+        return this.kernels.contains(kernel);
+    }
+
+    /**
+     * Returns the total number of sessions destroyed for being idle.
+     */
+    public long getReapedCount() {
+        return this.reapedCount.get();
+    }
+
+    public long getIdleTimeoutMillis() {
+        return this.idleTimeoutMillis;
+    }
+
+    public static class Builder {
+        private long idleTimeoutMillis = 10 * 60 * 1000;
+        private long checkIntervalMillis = 30 * 1000;
+        private int batchSize = 16;
+        private long shutdownDeadlineMillis = 5000;
+        private boolean shutdownHook = true;
+
+        /**
+         * Sessions not used for this period are destroyed. Zero disables the background reaper.
+         */
+        public Builder idleTimeoutMillis(long val) {
+            idleTimeoutMillis = val;
+            return this;
+        }
+
+        public Builder checkIntervalMillis(long val) {
+            checkIntervalMillis = val;
+            return this;
+        }
+
+        /**
+         * The maximum number of sessions destroyed in parallel.
+         */
+        public Builder batchSize(int val) {
+            batchSize = val;
+            return this;
+        }
+
+        public Builder shutdownDeadlineMillis(long val) {
+            shutdownDeadlineMillis = val;
+            return this;
+        }
+
+        /**
+         * If true (default), all tracked sessions are destroyed when the JVM shuts down.
+         */
+        public Builder shutdownHook(boolean val) {
+            shutdownHook = val;
+            return this;
+        }
+
+        public SessionRegistry build() {
+            if (idleTimeoutMillis < 0 || checkIntervalMillis <= 0 || batchSize <= 0 || shutdownDeadlineMillis < 0) {
+                throw new IllegalArgumentException("Invalid session registry settings");
+            }
+            return new SessionRegistry(this);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package ai.backend.client.exceptions;
+
+public class DeadlineExceededException extends BackendClientException {
+    public DeadlineExceededException() { super(); }
+    public DeadlineExceededException(String message) { super(message); }
+    public DeadlineExceededException(String message, Throwable cause) { super(message, cause); }
+}
@@ -0,0 +1,36 @@
+package ai.backend.client.values;
+
+/**
+ * A console output item of an execution result, such as a piece of stdout or stderr.
+ */
+public class ConsoleChunk extends ExecutionEvent {
+    private final String type;
+    private final String data;
+
+    public ConsoleChunk(String type, String data) {
+        this.type = type;
+        this.data = data;
+    }
+
+    /**
+     * Returns the type of the item (e.g., "stdout", "stderr", "media", "html").
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Returns the content of the item. Non-string contents such as media items are given as JSON.
+     */
+    public String getData() {
+        return data;
+    }
+
+    public boolean isStdout() {
+        return type.equals("stdout");
+    }
+
+    public boolean isStderr() {
+        return type.equals("stderr");
+    }
+}
@@ -0,0 +1,7 @@
+package ai.backend.client.values;
+
+/**
+ * An event emitted while a run progresses, either a {@link ConsoleChunk} or a {@link StatusChange}.
+ */
+public abstract class ExecutionEvent {
+}
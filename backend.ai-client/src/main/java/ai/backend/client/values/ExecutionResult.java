@@ -3,13 +3,20 @@ package ai.backend.client.values;
 import ai.backend.client.values.RunStatus;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 public class ExecutionResult {
     private String stderr = "";
     private JsonObject jsonResult;
     private RunStatus status;
     private String stdout = "";
+    private final List<ConsoleChunk> consoleChunks = new ArrayList<ConsoleChunk>();
+    private ResourceUsage usage;
 
     public ExecutionResult(JsonObject jsonResult) {
         this.jsonResult = jsonResult;
@@ -17,9 +24,12 @@ public class ExecutionResult {
             JsonObject result = jsonResult.get("result").getAsJsonObject();
             JsonArray console = result.get("console").getAsJsonArray();
             this.status = RunStatus.get(result.get("status").getAsString());
+            this.usage = ResourceUsage.fromResponse(result);
             for (int i = 0; i < console.size(); i++) {
                 JsonArray a = console.get(i).getAsJsonArray();
                 String type = a.get(0).getAsString();
+                JsonElement data = a.get(1);
+                consoleChunks.add(new ConsoleChunk(type, data.isJsonPrimitive() ? data.getAsString() : data.toString()));
                 if(type.equals("stdout")) {
                     this.stdout = a.get(1).getAsString();
                 } else if (type.equals("stderr")) {
@@ -46,6 +56,20 @@ public class ExecutionResult {
         return stderr;
     }
 
+    /**
+     * Returns all console items of this result in order.
+     */
+    public List<ConsoleChunk> getConsole() {
+        return Collections.unmodifiableList(consoleChunks);
+    }
+
+    /**
+     * Returns the resource usage of this execution if the manager reported it, or null otherwise.
+     */
+    public ResourceUsage getResourceUsage() {
+        return usage;
+    }
+
     public boolean isFinished() {
         return status == RunStatus.FINISHED;
     }
@@ -0,0 +1,101 @@
+package ai.backend.client.values;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * Resource usage statistics of a compute session or a single execution reported by the manager.
+ * Only primitive fields are kept so that usage can be collected for every session without retaining the response.
+ * Fields which the server did not report are set to -1.
+ */
+public final class ResourceUsage {
+    private final long cpuUsedMillis;
+    private final long memMaxBytes;
+    private final long memCurBytes;
+    private final long netRxBytes;
+    private final long netTxBytes;
+    private final long ioReadBytes;
+    private final long ioWriteBytes;
+    private final long ioMaxScratchSize;
+    private final long ioCurScratchSize;
+
+    public ResourceUsage(JsonObject stats) {
+        this.cpuUsedMillis = getLong(stats, "cpu_used", "cpuUsed");
+        this.memMaxBytes = getLong(stats, "mem_max_bytes", "memMaxBytes");
+        this.memCurBytes = getLong(stats, "mem_cur_bytes", "memCurBytes");
+        this.netRxBytes = getLong(stats, "net_rx_bytes", "netRxBytes");
+        this.netTxBytes = getLong(stats, "net_tx_bytes", "netTxBytes");
+        this.ioReadBytes = getLong(stats, "io_read_bytes", "ioReadBytes");
+        this.ioWriteBytes = getLong(stats, "io_write_bytes", "ioWriteBytes");
+        this.ioMaxScratchSize = getLong(stats, "io_max_scratch_size", "ioMaxScratchSize");
+        this.ioCurScratchSize = getLong(stats, "io_cur_scratch_size", "ioCurScratchSize");
+    }
+
+    /**
+     * Parse the "stats" object of the given response, or return null if there is none.
+     */
+    public static ResourceUsage fromResponse(JsonObject response) {
+        JsonElement stats = response != null ? response.get("stats") : null;
+        if (stats == null || !stats.isJsonObject()) {
+            return null;
+        }
+        return new ResourceUsage(stats.getAsJsonObject());
+    }
+
+    private static long getLong(JsonObject o, String key, String alternativeKey) {
+        JsonElement e = o.has(key) ? o.get(key) : o.get(alternativeKey);
+        if (e == null || !e.isJsonPrimitive()) {
+            return -1;
+        }
+        try {
+            return (long) e.getAsDouble();
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    /**
+     * Returns the consumed CPU time in milliseconds.
+     */
+    public long getCpuUsedMillis() {
+        return cpuUsedMillis;
+    }
+
+    public long getMemMaxBytes() {
+        return memMaxBytes;
+    }
+
+    public long getMemCurBytes() {
+        return memCurBytes;
+    }
+
+    public long getNetRxBytes() {
+        return netRxBytes;
+    }
+
+    public long getNetTxBytes() {
+        return netTxBytes;
+    }
+
+    public long getIoReadBytes() {
+        return ioReadBytes;
+    }
+
+    public long getIoWriteBytes() {
+        return ioWriteBytes;
+    }
+
+    public long getIoMaxScratchSize() {
+        return ioMaxScratchSize;
+    }
+
+    public long getIoCurScratchSize() {
+        return ioCurScratchSize;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ResourceUsage(cpu=%d ms, memMax=%d, netRx=%d, netTx=%d, ioRead=%d, ioWrite=%d)",
+                cpuUsedMillis, memMaxBytes, netRxBytes, netTxBytes, ioReadBytes, ioWriteBytes);
+    }
+}
@@ -0,0 +1,104 @@
+package ai.backend.client.values;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * Metadata of a compute session returned by the session information API.
+ * Numeric fields which the server did not report are set to -1.
+ */
+public class SessionInfo {
+    private final JsonObject jsonResult;
+    private final String lang;
+    private final double age;
+    private final long queryTimeout;
+    private final long idleTimeout;
+    private final long memoryLimit;
+    private final long maxCpuCredit;
+    private final long numQueriesExecuted;
+    private final double cpuCreditUsed;
+
+    public SessionInfo(JsonObject jsonResult) {
+        this.jsonResult = jsonResult;
+        this.lang = jsonResult.has("lang") && !jsonResult.get("lang").isJsonNull()
+                ? jsonResult.get("lang").getAsString() : null;
+        this.age = getDouble(jsonResult, "age");
+        this.queryTimeout = getLong(jsonResult, "queryTimeout");
+        this.idleTimeout = getLong(jsonResult, "idleTimeout");
+        this.memoryLimit = getLong(jsonResult, "memoryLimit");
+        this.maxCpuCredit = getLong(jsonResult, "maxCpuCredit");
+        this.numQueriesExecuted = getLong(jsonResult, "numQueriesExecuted");
+        this.cpuCreditUsed = getDouble(jsonResult, "cpuCreditUsed");
+    }
+
+    private static long getLong(JsonObject o, String key) {
+        JsonElement e = o.get(key);
+        if (e == null || !e.isJsonPrimitive()) {
+            return -1;
+        }
+        try {
+            return e.getAsLong();
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    private static double getDouble(JsonObject o, String key) {
+        JsonElement e = o.get(key);
+        if (e == null || !e.isJsonPrimitive()) {
+            return -1;
+        }
+        try {
+            return e.getAsDouble();
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    public String getAsJson() {
+        Gson gson = new Gson();
+        return gson.toJson(jsonResult);
+    }
+
+    /**
+     * Returns the kernel type of the session.
+     */
+    public String getLang() {
+        return lang;
+    }
+
+    /**
+     * Returns the elapsed time since the session was created, in milliseconds.
+     */
+    public double getAge() {
+        return age;
+    }
+
+    public long getQueryTimeout() {
+        return queryTimeout;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Returns the memory limit of the session in KiB.
+     */
+    public long getMemoryLimit() {
+        return memoryLimit;
+    }
+
+    public long getMaxCpuCredit() {
+        return maxCpuCredit;
+    }
+
+    public long getNumQueriesExecuted() {
+        return numQueriesExecuted;
+    }
+
+    public double getCpuCreditUsed() {
+        return cpuCreditUsed;
+    }
+}
@@ -0,0 +1,25 @@
+package ai.backend.client.values;
+
+/**
+ * A transition of the run status reported by the server.
+ */
+public class StatusChange extends ExecutionEvent {
+    private final RunStatus previous;
+    private final RunStatus status;
+
+    public StatusChange(RunStatus previous, RunStatus status) {
+        this.previous = previous;
+        this.status = status;
+    }
+
+    /**
+     * Returns the previous status, or null if this is the first status of the run.
+     */
+    public RunStatus getPrevious() {
+        return previous;
+    }
+
+    public RunStatus getStatus() {
+        return status;
+    }
+}
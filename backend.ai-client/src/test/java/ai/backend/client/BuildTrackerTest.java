@@ -0,0 +1,147 @@
+package ai.backend.client;
+
+import ai.backend.client.values.ExecutionMode;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+import static ai.backend.client.MockServerFixtures.configFor;
+import static ai.backend.client.MockServerFixtures.jsonResponse;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BuildTrackerTest {
+    private MockWebServer server;
+    private ClientConfig config;
+    private File source;
+    private Map<String, String> files;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        config = configFor(server);
+        source = File.createTempFile("main", ".c");
+        source.deleteOnExit();
+        writeSource("int main() { return 0; }\n");
+        files = new HashMap<String, String>();
+        files.put("main.c", source.getPath());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private void writeSource(String content) throws Exception {
+        FileWriter writer = new FileWriter(source);
+        writer.write(content);
+        writer.close();
+    }
+
+    private static MockResponse status(String status) {
+        return jsonResponse(String.format("{\"result\": {\"status\": \"%s\", \"console\": []}}", status));
+    }
+
+    private static JsonObject opts(String build) {
+        JsonObject opts = new JsonObject();
+        opts.addProperty("build", build);
+        opts.addProperty("exec", "./main");
+        return opts;
+    }
+
+    /**
+     * Run a batch job to completion and return the build command sent in its first request.
+     */
+    private String runBatch(Kernel kernel, String build, boolean builds) throws Exception {
+        if (builds) {
+            server.enqueue(status("build-finished"));
+        }
+        server.enqueue(status("finished"));
+        String runId = Kernel.generateRunId();
+        kernel.execute(ExecutionMode.BATCH, runId, "", opts(build));
+        if (builds) {
+            kernel.execute(ExecutionMode.CONTINUE, runId, "", null);
+        }
+        String body = server.takeRequest().getBody().readUtf8();
+        if (builds) {
+            server.takeRequest();
+        }
+        return new JsonParser().parse(body).getAsJsonObject().getAsJsonObject("options").get("build").getAsString();
+    }
+
+    @Test
+    public void skipUnchangedBuild() throws Exception {
+        server.enqueue(jsonResponse("{\"kernelId\": \"buildkernel\"}"));
+        server.enqueue(new MockResponse().setResponseCode(204));
+        Kernel kernel = Kernel.getOrCreateInstance("buildtoken", "c", config);
+        kernel.setBuildTrackingEnabled(true);
+        kernel.upload(files);
+        server.takeRequest();
+        server.takeRequest();
+
+        assertEquals("make", runBatch(kernel, "make", true));
+        assertEquals("", runBatch(kernel, "make", false));
+        assertEquals(1, kernel.getSkippedBuildCount());
+
+        // A different build command or changed sources build again.
+        assertEquals("make all", runBatch(kernel, "make all", true));
+        writeSource("int main() { return 1; }\n");
+        server.enqueue(new MockResponse().setResponseCode(204));
+        kernel.upload(files);
+        server.takeRequest();
+        assertEquals("make all", runBatch(kernel, "make all", true));
+        assertEquals("", runBatch(kernel, "make all", false));
+
+        // A build which did not finish is not recorded.
+        server.enqueue(status("finished"));
+        kernel.execute(ExecutionMode.BATCH, Kernel.generateRunId(), "", opts("make broken"));
+        server.takeRequest();
+        assertEquals("make all", runBatch(kernel, "make all", true));
+        assertEquals(2, kernel.getSkippedBuildCount());
+    }
+
+    @Test
+    public void rebuildAfterRecovery() throws Exception {
+        server.enqueue(jsonResponse("{\"kernelId\": \"oldbuildkernel\"}"));
+        server.enqueue(new MockResponse().setResponseCode(204));
+        Kernel kernel = Kernel.getOrCreateInstance("recoverbuildtoken", "c", config);
+        kernel.setBuildTrackingEnabled(true);
+        kernel.setRecoveryEnabled(true);
+        kernel.upload(files);
+        server.takeRequest();
+        server.takeRequest();
+        assertEquals("make", runBatch(kernel, "make", true));
+
+        // The skipped build is restored when the run is replayed on the recreated session.
+        server.enqueue(new MockResponse().setResponseCode(404)
+                .setHeader("Content-Type", "application/problem+json")
+                .setBody("{\"title\": \"Kernel not found\"}"));
+        server.enqueue(jsonResponse("{\"kernelId\": \"newbuildkernel\"}"));
+        server.enqueue(new MockResponse().setResponseCode(204));
+        server.enqueue(status("build-finished"));
+        server.enqueue(status("finished"));
+        String runId = Kernel.generateRunId();
+        kernel.execute(ExecutionMode.BATCH, runId, "", opts("make"));
+        kernel.execute(ExecutionMode.CONTINUE, runId, "", null);
+        assertEquals(1, kernel.getRecoveryCount());
+        String skipped = server.takeRequest().getBody().readUtf8();
+        assertTrue(skipped.contains("\"build\":\"\""));
+        server.takeRequest();
+        server.takeRequest();
+        String replayed = server.takeRequest().getBody().readUtf8();
+        assertEquals("/v2/kernel/newbuildkernel", server.takeRequest().getPath());
+        assertTrue(replayed.contains("\"build\":\"make\""));
+
+        // The replayed build is recorded for the new session.
+        assertEquals("", runBatch(kernel, "make", false));
+    }
+}
@@ -0,0 +1,98 @@
+package ai.backend.client;
+
+import ai.backend.client.values.ExecutionMode;
+import ai.backend.client.values.ExecutionResult;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.GzipSource;
+import okio.Okio;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+import static ai.backend.client.MockServerFixtures.builderFor;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompressionTest {
+    private MockWebServer server;
+    private ClientConfig config;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        config = builderFor(server)
+                .compression(true)
+                .compressionThreshold(256)
+                .build();
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"kernelId\": \"compressedkernel\"}"));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private static Buffer gzip(String s) throws Exception {
+        Buffer compressed = new Buffer();
+        BufferedSink sink = Okio.buffer(new GzipSink(compressed));
+        sink.writeUtf8(s);
+        sink.close();
+        return compressed;
+    }
+
+    @Test
+    public void compressLargeBodies() throws Exception {
+        StringBuilder output = new StringBuilder();
+        StringBuilder code = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            output.append("line ").append(i).append("\\n");
+            code.append("print('line ").append(i).append("')\n");
+        }
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setHeader("Content-Encoding", "gzip")
+                .setBody(gzip("{\"result\": {\"status\": \"finished\", \"console\": [[\"stdout\", \""
+                        + output + "\"]]}}")));
+
+        Kernel kernel = Kernel.getOrCreateInstance("compressedkernel", "python3", config);
+        ExecutionResult result = kernel.execute(ExecutionMode.QUERY, Kernel.generateRunId(), code.toString(), null);
+        assertTrue(result.isFinished());
+        assertTrue(result.getStdout().startsWith("line 0\nline 1\n"));
+
+        RecordedRequest create = server.takeRequest();
+        assertNull(create.getHeader("Content-Encoding"));
+        RecordedRequest execute = server.takeRequest();
+        assertEquals("gzip", execute.getHeader("Content-Encoding"));
+        assertEquals("gzip", execute.getHeader("Accept-Encoding"));
+        String body = Okio.buffer(new GzipSource(execute.getBody())).readUtf8();
+        JsonObject json = new JsonParser().parse(body).getAsJsonObject();
+        assertEquals(code.toString(), json.get("code").getAsString());
+
+        // The signature must cover the uncompressed body.
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+        format.setTimeZone(TimeZone.getTimeZone("GMT+0"));
+        Date date = format.parse(execute.getHeader("Date").substring(0, 19));
+        String expected = new Auth(config).getCredentialString(
+                "POST", "/v2/kernel/compressedkernel", date, "application/json", body);
+        assertEquals("BackendAI signMethod=HMAC-SHA256, credential=" + expected, execute.getHeader("Authorization"));
+
+        ClientMetrics metrics = config.getMetrics();
+        assertEquals(1, metrics.getCompressedRequests());
+        assertTrue(metrics.getRequestCompressionRatio() > 1);
+        assertEquals(1, metrics.getCompressedResponses());
+        assertTrue(metrics.getResponseCompressionRatio() > 1);
+    }
+}
@@ -0,0 +1,87 @@
+package ai.backend.client;
+
+import ai.backend.client.exceptions.DeadlineExceededException;
+import ai.backend.client.values.ExecutionMode;
+import ai.backend.client.values.ExecutionResult;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static ai.backend.client.MockServerFixtures.configFor;
+import static ai.backend.client.MockServerFixtures.jsonResponse;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeadlineTest {
+    private MockWebServer server;
+    private Kernel kernel;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        ClientConfig config = configFor(server);
+        server.enqueue(jsonResponse("{\"kernelId\": \"deadlinekernel\"}"));
+        kernel = Kernel.getOrCreateInstance("deadlinekernel", "python3", config);
+        server.takeRequest();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private static String result(String status) {
+        return String.format("{\"result\": {\"status\": \"%s\", \"console\": []}}", status);
+    }
+
+    @Test
+    public void cancelAndInterruptOnExpiry() throws Exception {
+        // MockWebServer delays HTTP/1 responses before the headers when a body delay is set.
+        server.enqueue(jsonResponse(result("finished")).setBodyDelay(3, TimeUnit.SECONDS));
+        server.enqueue(new MockResponse().setResponseCode(204));
+        long started = System.nanoTime();
+        try {
+            kernel.execute(ExecutionMode.QUERY, Kernel.generateRunId(), "while True: pass", null,
+                    Deadline.after(300, TimeUnit.MILLISECONDS));
+            fail("The deadline should have expired.");
+        } catch (DeadlineExceededException e) {
+            assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(2));
+        }
+        assertEquals("/v2/kernel/deadlinekernel", server.takeRequest().getPath());
+        RecordedRequest interrupt = server.takeRequest(2, TimeUnit.SECONDS);
+        assertNotNull(interrupt);
+        assertEquals("/v2/kernel/deadlinekernel/interrupt", interrupt.getPath());
+    }
+
+    @Test
+    public void shareDeadlineAcrossContinuations() throws Exception {
+        Deadline deadline = Deadline.after(5, TimeUnit.SECONDS);
+        server.enqueue(jsonResponse(result("continued")));
+        server.enqueue(jsonResponse(result("finished")));
+        String runId = Kernel.generateRunId();
+        ExecutionResult first = kernel.execute(ExecutionMode.QUERY, runId, "print(1)", null, deadline);
+        assertFalse(first.isFinished());
+        ExecutionResult second = kernel.execute(ExecutionMode.CONTINUE, runId, "", null, deadline);
+        assertTrue(second.isFinished());
+        assertFalse(deadline.isExpired());
+        assertTrue(deadline.timeRemaining(TimeUnit.MILLISECONDS) > 0);
+    }
+
+    @Test
+    public void expiredDeadlineSendsNothing() throws Exception {
+        Deadline deadline = Deadline.after(0, TimeUnit.MILLISECONDS);
+        assertTrue(deadline.isExpired());
+        try {
+            kernel.getInfo(deadline);
+            fail("The deadline should have expired.");
+        } catch (DeadlineExceededException e) {
+            // expected
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+}
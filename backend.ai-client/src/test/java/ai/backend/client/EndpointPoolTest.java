@@ -0,0 +1,131 @@
+package ai.backend.client;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+import static ai.backend.client.MockServerFixtures.ACCESS_KEY;
+import static ai.backend.client.MockServerFixtures.SECRET_KEY;
+import static ai.backend.client.MockServerFixtures.jsonResponse;
+import static ai.backend.client.MockServerFixtures.urlOf;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EndpointPoolTest {
+    private MockWebServer first;
+    private MockWebServer second;
+
+    @Before
+    public void setUp() throws Exception {
+        first = new MockWebServer();
+        first.start();
+        second = new MockWebServer();
+        second.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        first.shutdown();
+        second.shutdown();
+    }
+
+    private ClientConfig config(String firstUrl, String secondUrl) {
+        return new ClientConfig.Builder()
+                .accessKey(ACCESS_KEY)
+                .secretKey(SECRET_KEY)
+                .addEndPoint(firstUrl, "first.backend.ai")
+                .addEndPoint(secondUrl, "second.backend.ai")
+                .healthCheckIntervalMillis(0)
+                .build();
+    }
+
+    @Test
+    public void selectLowestLatencyHealthyEndpoint() throws Exception {
+        ClientConfig config = config(urlOf(first), urlOf(second));
+        EndpointPool pool = config.getEndpointPool();
+        Endpoint a = pool.getEndpoints().get(0);
+        Endpoint b = pool.getEndpoints().get(1);
+        a.recordSuccess(50000000);
+        assertSame(b, pool.select());
+        b.recordSuccess(5000000);
+        assertSame(b, pool.select());
+
+        b.recordFailure(EndpointPool.FAILURE_THRESHOLD);
+        assertTrue(b.isHealthy());
+        b.recordFailure(EndpointPool.FAILURE_THRESHOLD);
+        assertFalse(b.isHealthy());
+        assertSame(a, pool.select());
+
+        second.enqueue(new MockResponse().setBody("{}"));
+        first.enqueue(new MockResponse().setBody("{}"));
+        pool.probeAll(config.getHttpClient());
+        second.takeRequest();
+        for (int i = 0; i < 100 && !b.isHealthy(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(b.isHealthy());
+    }
+
+    @Test
+    public void stayOnEndpointSignedWithItsHostname() throws Exception {
+        ClientConfig config = config(urlOf(first), urlOf(second));
+        config.getEndpointPool().getEndpoints().get(0).recordSuccess(50000000);
+        second.enqueue(jsonResponse("{\"kernelId\": \"pinnedkernel\"}"));
+        second.enqueue(jsonResponse("{\"lang\": \"python3\"}"));
+        Kernel kernel = Kernel.getOrCreateInstance("pinnedkernel", "python3", config);
+        // A faster first endpoint must not move the existing session.
+        config.getEndpointPool().getEndpoints().get(0).recordSuccess(0);
+        assertEquals("python3", kernel.verifyType());
+        assertEquals(0, first.getRequestCount());
+        assertEquals(2, second.getRequestCount());
+
+        second.takeRequest();
+        RecordedRequest request = second.takeRequest();
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+        format.setTimeZone(TimeZone.getTimeZone("GMT+0"));
+        Date date = format.parse(request.getHeader("Date").replace("+00:00", ""));
+        Auth auth = new Auth(config, kernel.getEndpoint());
+        String credential = auth.getCredentialString("GET", request.getPath(), date, "application/json", "");
+        assertEquals("BackendAI signMethod=HMAC-SHA256, credential=" + credential, request.getHeader("Authorization"));
+    }
+
+    @Test
+    public void failOverWhenEndpointIsUnreachable() throws Exception {
+        String unreachable = urlOf(first);
+        first.shutdown();
+        ClientConfig config = config(unreachable, urlOf(second));
+        second.enqueue(jsonResponse("{\"kernelId\": \"failoverkernel\"}"));
+        Kernel kernel = Kernel.getOrCreateInstance("failoverkernel", "python3", config);
+        assertEquals("failoverkernel", kernel.getId());
+        assertEquals(urlOf(second), kernel.getEndpoint().getUrl());
+    }
+
+    @Test
+    public void probeFromFirstUseUntilClose() throws Exception {
+        ClientConfig config = new ClientConfig.Builder()
+                .accessKey(ACCESS_KEY)
+                .secretKey(SECRET_KEY)
+                .addEndPoint(urlOf(first), "first.backend.ai")
+                .addEndPoint(urlOf(second), "second.backend.ai")
+                .healthCheckIntervalMillis(60000)
+                .build();
+        EndpointPool pool = config.getEndpointPool();
+        assertFalse(pool.isProbing());
+
+        first.enqueue(jsonResponse("{\"kernelId\": \"probedkernel\"}"));
+        second.enqueue(jsonResponse("{\"kernelId\": \"probedkernel\"}"));
+        Kernel.getOrCreateInstance("probedkernel", "python3", config);
+        assertTrue(pool.isProbing());
+
+        config.close();
+        assertFalse(pool.isProbing());
+        config.startHealthChecks();
+        assertFalse(pool.isProbing());
+    }
+}
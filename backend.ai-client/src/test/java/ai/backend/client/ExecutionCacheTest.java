@@ -0,0 +1,146 @@
+package ai.backend.client;
+
+import ai.backend.client.values.ExecutionMode;
+import ai.backend.client.values.ExecutionResult;
+import com.google.gson.JsonObject;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.Test;
+
+import java.io.File;
+
+import static ai.backend.client.MockServerFixtures.builderFor;
+import static ai.backend.client.MockServerFixtures.jsonResponse;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExecutionCacheTest {
+
+    private static String result(String status, String stdout) {
+        return String.format("{\"result\": {\"status\": \"%s\", \"console\": [[\"stdout\", \"%s\"]]}}",
+                status, stdout);
+    }
+
+    @Test
+    public void skipRoundTripForFinishedQueries() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.start();
+        try {
+            ExecutionCache cache = new ExecutionCache(60000, 10);
+            ClientConfig config = builderFor(server)
+                    .executionCache(cache)
+                    .build();
+            server.enqueue(jsonResponse("{\"kernelId\": \"cachedkernel\"}"));
+            Kernel kernel = Kernel.getOrCreateInstance("cachedkernel", "python3", config);
+
+            String firstRunId = Kernel.generateRunId();
+            String secondRunId = Kernel.generateRunId();
+            server.enqueue(jsonResponse(String.format("{\"result\": {\"runId\": \"%s\", \"status\": \"finished\", "
+                    + "\"console\": [[\"stdout\", \"42\"]]}}", firstRunId)));
+            ExecutionResult first = kernel.execute(ExecutionMode.QUERY, firstRunId, "print(42)", null);
+            ExecutionResult second = kernel.execute(ExecutionMode.QUERY, secondRunId, "print(42)", null);
+            assertEquals("42", first.getStdout());
+            assertEquals("42", second.getStdout());
+            assertTrue(second.isFinished());
+            assertTrue(second.getAsJson().contains(secondRunId));
+            assertFalse(second.getAsJson().contains(firstRunId));
+            assertEquals(2, server.getRequestCount());
+            assertEquals(1, cache.getHitCount());
+
+            // Different options are a different query, and bypassing always sends the request.
+            JsonObject opts = new JsonObject();
+            opts.addProperty("exec", "python3 main.py");
+            server.enqueue(jsonResponse(result("finished", "43")));
+            assertEquals("43", kernel.execute(ExecutionMode.QUERY, Kernel.generateRunId(), "print(42)", opts).getStdout());
+            server.enqueue(jsonResponse(result("finished", "44")));
+            assertEquals("44", kernel.executeUncached(ExecutionMode.QUERY, Kernel.generateRunId(), "print(42)",
+                    null, null).getStdout());
+            assertEquals(4, server.getRequestCount());
+
+            // A run which did not finish in its first request is not cached.
+            server.enqueue(jsonResponse(result("continued", "1")));
+            server.enqueue(jsonResponse(result("continued", "1")));
+            kernel.execute(ExecutionMode.QUERY, Kernel.generateRunId(), "slow()", null);
+            kernel.execute(ExecutionMode.QUERY, Kernel.generateRunId(), "slow()", null);
+            assertEquals(6, server.getRequestCount());
+            assertEquals(2, cache.size());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void expireAfterTtl() throws Exception {
+        ExecutionCache cache = new ExecutionCache(20, 10);
+        String key = ExecutionCache.keyOf("python3", "print(1)", null);
+        cache.put(key, result("finished", "1"));
+        assertNotNull(cache.get(key));
+        Thread.sleep(50);
+        assertNull(cache.get(key));
+    }
+
+    @Test
+    public void serveEvictedAndReopenedEntriesFromDisk() throws Exception {
+        File file = File.createTempFile("execution-cache", ".bin");
+        file.deleteOnExit();
+        String a = ExecutionCache.keyOf("python3", "print('a')", null);
+        String b = ExecutionCache.keyOf("python3", "print('b')", null);
+        String c = ExecutionCache.keyOf("python3", "print('c')", null);
+        ExecutionCache cache = new ExecutionCache(60000, 1, file, 64 * 1024);
+        cache.put(a, result("finished", "a"));
+        cache.put(b, result("finished", "b"));
+        cache.put(c, result("finished", "c"));
+        cache.invalidate("python3", "print('c')", null);
+        assertEquals(0, cache.size());
+        assertEquals(result("finished", "a"), cache.get(a));
+        assertEquals(1, cache.getDiskHitCount());
+        cache.close();
+
+        ExecutionCache reopened = new ExecutionCache(60000, 1, file, 64 * 1024);
+        assertEquals(2, reopened.diskSize());
+        assertEquals(result("finished", "b"), reopened.get(b));
+        assertNull(reopened.get(c));
+        reopened.close();
+    }
+
+    @Test
+    public void compactLiveRecordsWhenDiskIsFull() throws Exception {
+        File file = File.createTempFile("execution-cache", ".bin");
+        file.deleteOnExit();
+        MappedResultStore store = new MappedResultStore(file, 1024);
+        long expiresAt = System.currentTimeMillis() + 60000;
+        store.put("kept", "kept", expiresAt);
+        // Overwritten and removed records are dead, so compaction makes room without dropping the live one.
+        for (int i = 0; i < 20; i++) {
+            store.put("churn", String.format("%0100d", i), expiresAt);
+        }
+        store.remove("churn");
+        assertEquals("kept", store.get("kept"));
+        assertEquals(1, store.size());
+        store.close();
+
+        MappedResultStore reopened = new MappedResultStore(file, 1024);
+        assertEquals("kept", reopened.get("kept"));
+        assertNull(reopened.get("churn"));
+        reopened.close();
+    }
+
+    @Test
+    public void dropOldestRecordsWhenLiveRecordsDoNotFit() throws Exception {
+        File file = File.createTempFile("execution-cache", ".bin");
+        file.deleteOnExit();
+        MappedResultStore store = new MappedResultStore(file, 1024);
+        long expiresAt = System.currentTimeMillis() + 60000;
+        for (int i = 0; i < 10; i++) {
+            store.put("key" + i, String.format("%0100d", i), expiresAt);
+        }
+        assertNull(store.get("key0"));
+        assertEquals(String.format("%0100d", 9), store.get("key9"));
+        assertEquals(String.format("%0100d", 8), store.get("key8"));
+        int size = store.size();
+        store.close();
+
+        MappedResultStore reopened = new MappedResultStore(file, 1024);
+        assertEquals(size, reopened.size());
+        assertEquals(String.format("%0100d", 9), reopened.get("key9"));
+        reopened.close();
+    }
+}
@@ -0,0 +1,156 @@
+package ai.backend.client;
+
+import ai.backend.client.values.ConsoleChunk;
+import ai.backend.client.values.ExecutionEvent;
+import ai.backend.client.values.ExecutionMode;
+import ai.backend.client.values.RunStatus;
+import ai.backend.client.values.StatusChange;
+import com.google.gson.JsonParser;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static ai.backend.client.MockServerFixtures.configFor;
+import static ai.backend.client.MockServerFixtures.jsonResponse;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExecutionPublisherTest {
+    private MockWebServer server;
+    private Kernel kernel;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        ClientConfig config = configFor(server);
+        server.enqueue(jsonResponse("{\"kernelId\": \"publisherkernel\"}"));
+        kernel = Kernel.getOrCreateInstance("publisherkernel", "python3", config);
+        server.takeRequest();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private static MockResponse resultResponse(String status, String stdout) {
+        return jsonResponse("{\"result\": {\"status\": \"" + status + "\", \"console\": [[\"stdout\", \""
+                + stdout + "\"]]}}");
+    }
+
+    private static String modeOf(RecordedRequest request) {
+        return new JsonParser().parse(request.getBody().readUtf8()).getAsJsonObject().get("mode").getAsString();
+    }
+
+    private static class QueueSubscriber implements Subscriber<ExecutionEvent> {
+        final BlockingQueue<ExecutionEvent> events = new LinkedBlockingQueue<ExecutionEvent>();
+        final CountDownLatch completed = new CountDownLatch(1);
+        volatile Subscription subscription;
+        volatile Throwable error;
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            subscription = s;
+        }
+
+        @Override
+        public void onNext(ExecutionEvent event) {
+            events.add(event);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            error = t;
+            completed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+    }
+
+    @Test
+    public void emitWholeRun() throws Exception {
+        server.enqueue(resultResponse("continued", "a"));
+        server.enqueue(resultResponse("continued", "b"));
+        server.enqueue(resultResponse("finished", "c"));
+
+        QueueSubscriber subscriber = new QueueSubscriber();
+        kernel.publishExecution(ExecutionMode.QUERY, "print('abc')", null).subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertTrue(subscriber.completed.await(5, TimeUnit.SECONDS));
+        assertNull(subscriber.error);
+
+        StringBuilder stdout = new StringBuilder();
+        int transitions = 0;
+        for (ExecutionEvent event : subscriber.events) {
+            if (event instanceof ConsoleChunk) {
+                stdout.append(((ConsoleChunk) event).getData());
+            } else {
+                transitions++;
+            }
+        }
+        assertEquals("abc", stdout.toString());
+        // continued once, then finished
+        assertEquals(2, transitions);
+        assertEquals("query", modeOf(server.takeRequest()));
+        assertEquals("continue", modeOf(server.takeRequest()));
+        assertEquals("continue", modeOf(server.takeRequest()));
+    }
+
+    @Test
+    public void fetchOnlyOnDemandAndInterruptOnCancel() throws Exception {
+        server.enqueue(resultResponse("continued", "a"));
+        server.enqueue(jsonResponse("{}"));
+
+        QueueSubscriber subscriber = new QueueSubscriber();
+        kernel.publishExecution(ExecutionMode.QUERY, "while True: print('a')", null).subscribe(subscriber);
+        assertNull(server.takeRequest(200, TimeUnit.MILLISECONDS));
+
+        subscriber.subscription.request(2);
+        ExecutionEvent first = subscriber.events.poll(5, TimeUnit.SECONDS);
+        assertEquals("a", ((ConsoleChunk) first).getData());
+        ExecutionEvent second = subscriber.events.poll(5, TimeUnit.SECONDS);
+        assertEquals(RunStatus.CONTINUED, ((StatusChange) second).getStatus());
+        server.takeRequest();
+        // No more demand, so no continuation request is sent.
+        assertNull(server.takeRequest(200, TimeUnit.MILLISECONDS));
+
+        subscriber.subscription.cancel();
+        RecordedRequest interrupt = server.takeRequest(5, TimeUnit.SECONDS);
+        assertEquals("/v2/kernel/publisherkernel/interrupt", interrupt.getPath());
+    }
+
+    @Test
+    public void rejectInvalidDemandWithBufferedEvents() throws Exception {
+        server.enqueue(jsonResponse("{\"result\": {\"status\": \"continued\", \"console\": "
+                + "[[\"stdout\", \"a\"], [\"stdout\", \"b\"], [\"stdout\", \"c\"]]}}"));
+        server.enqueue(jsonResponse("{}"));
+
+        QueueSubscriber subscriber = new QueueSubscriber();
+        kernel.publishExecution(ExecutionMode.QUERY, "while True: print('abc')", null).subscribe(subscriber);
+        subscriber.subscription.request(1);
+        ExecutionEvent first = subscriber.events.poll(5, TimeUnit.SECONDS);
+        assertEquals("a", ((ConsoleChunk) first).getData());
+        server.takeRequest();
+
+        // The remaining events stay buffered without demand.
+        subscriber.subscription.request(0);
+        assertTrue(subscriber.completed.await(5, TimeUnit.SECONDS));
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        assertTrue(subscriber.events.isEmpty());
+        RecordedRequest interrupt = server.takeRequest(5, TimeUnit.SECONDS);
+        assertEquals("/v2/kernel/publisherkernel/interrupt", interrupt.getPath());
+    }
+}
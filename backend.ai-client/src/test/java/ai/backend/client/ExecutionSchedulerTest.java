@@ -0,0 +1,219 @@
+package ai.backend.client;
+
+import ai.backend.client.values.ExecutionMode;
+import ai.backend.client.values.ExecutionResult;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static ai.backend.client.MockServerFixtures.configFor;
+import static ai.backend.client.MockServerFixtures.jsonResponse;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExecutionSchedulerTest {
+
+    private static Kernel kernel(MockWebServer server, ClientConfig config, String id) {
+        server.enqueue(jsonResponse(String.format("{\"kernelId\": \"%s\"}", id)));
+        return Kernel.getOrCreateInstance(id, "python3", config);
+    }
+
+    private static Callable<String> recording(final List<String> order, final String name) {
+        return new Callable<String>() {
+            @Override
+            public String call() {
+                order.add(name);
+                return name;
+            }
+        };
+    }
+
+    @Test
+    public void serializeCallsPerKernel() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.start();
+        try {
+            ClientConfig config = configFor(server);
+            Kernel shared = kernel(server, config, "sharedkernel");
+            Kernel other = kernel(server, config, "otherkernel");
+            ExecutionScheduler scheduler = new ExecutionScheduler.Builder().maxConcurrency(4).build();
+
+            final AtomicInteger active = new AtomicInteger();
+            final AtomicInteger maxActive = new AtomicInteger();
+            final CountDownLatch otherRan = new CountDownLatch(1);
+            Callable<Void> onShared = new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    int now = active.incrementAndGet();
+                    if (now > maxActive.get()) {
+                        maxActive.set(now);
+                    }
+                    // Hold the shared kernel until the other kernel has run.
+                    assertTrue(otherRan.await(5, TimeUnit.SECONDS));
+                    Thread.sleep(10);
+                    active.decrementAndGet();
+                    return null;
+                }
+            };
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int i = 0; i < 5; i++) {
+                futures.add(scheduler.submit(i % 2 == 0 ? "a" : "b", ExecutionScheduler.Priority.BATCH,
+                        shared, onShared));
+            }
+            // A different kernel is not held back by the busy one.
+            scheduler.submit("a", ExecutionScheduler.Priority.BATCH, other, new Callable<Void>() {
+                @Override
+                public Void call() {
+                    otherRan.countDown();
+                    return null;
+                }
+            });
+            for (Future<Void> f : futures) {
+                f.get(5, TimeUnit.SECONDS);
+            }
+            assertEquals(1, maxActive.get());
+
+            // The convenience method sends an actual execute request.
+            server.enqueue(jsonResponse("{\"result\": {\"status\": \"finished\", \"console\": [[\"stdout\", \"hi\"]]}}"));
+            Future<ExecutionResult> result = scheduler.execute("a", ExecutionScheduler.Priority.INTERACTIVE, shared,
+                    ExecutionMode.QUERY, Kernel.generateRunId(), "print('hi')", null, null);
+            assertEquals("hi", result.get(5, TimeUnit.SECONDS).getStdout());
+            assertEquals(0, scheduler.getQueuedCount());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void orderByPriorityAndWeight() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.start();
+        try {
+            ClientConfig config = configFor(server);
+            Kernel blockerKernel = kernel(server, config, "blockerkernel");
+            Kernel kernelA = kernel(server, config, "tenantakernel");
+            Kernel kernelB = kernel(server, config, "tenantbkernel");
+            ExecutionScheduler scheduler = new ExecutionScheduler.Builder()
+                    .maxConcurrency(1)
+                    .weight("a", 2)
+                    .build();
+
+            final CountDownLatch release = new CountDownLatch(1);
+            scheduler.submit("x", ExecutionScheduler.Priority.BATCH, blockerKernel, new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    release.await();
+                    return null;
+                }
+            });
+            List<String> order = Collections.synchronizedList(new ArrayList<String>());
+            List<Future<String>> futures = new ArrayList<Future<String>>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(scheduler.submit("a", ExecutionScheduler.Priority.BATCH, kernelA, recording(order, "a")));
+                futures.add(scheduler.submit("b", ExecutionScheduler.Priority.BATCH, kernelB, recording(order, "b")));
+            }
+            Future<String> cancelled = scheduler.submit("b", ExecutionScheduler.Priority.BATCH, kernelB,
+                    recording(order, "cancelled"));
+            futures.add(scheduler.submit("b", ExecutionScheduler.Priority.INTERACTIVE, kernelB,
+                    recording(order, "interactive")));
+            assertTrue(cancelled.cancel(false));
+            assertEquals(9, scheduler.getQueuedCount());
+            assertEquals(1, scheduler.getRunningCount());
+
+            release.countDown();
+            for (Future<String> f : futures) {
+                f.get(5, TimeUnit.SECONDS);
+            }
+            assertEquals("interactive", order.get(0));
+            // Tenant a has twice the weight of b, so it gets two thirds of the starts while both are backlogged.
+            assertEquals(4, Collections.frequency(order.subList(1, 7), "a"));
+            assertFalse(order.contains("cancelled"));
+            assertEquals(9, order.size());
+
+            ExecutionScheduler.TenantStats statsB = scheduler.getTenantStats("b");
+            assertEquals(6, statsB.getSubmitted());
+            assertEquals(5, statsB.getCompleted());
+            assertTrue(statsB.getMeanWaitMillis() > 0);
+            assertTrue(statsB.getThroughput() > 0);
+            assertEquals(3, scheduler.getTenantStats().size());
+            assertNull(scheduler.getTenantStats("nobody"));
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void holdKernelUntilCancelledOperationReturns() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.start();
+        try {
+            ClientConfig config = configFor(server);
+            Kernel kernel = kernel(server, config, "cancelkernel");
+            ExecutionScheduler scheduler = new ExecutionScheduler.Builder().maxConcurrency(1).build();
+
+            final CountDownLatch entered = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            final AtomicInteger active = new AtomicInteger();
+            final AtomicInteger maxActive = new AtomicInteger();
+            Future<Void> running = scheduler.submit("a", ExecutionScheduler.Priority.BATCH, kernel,
+                    new Callable<Void>() {
+                        @Override
+                        public Void call() {
+                            active.incrementAndGet();
+                            entered.countDown();
+                            // Ignore the interrupt of cancel(true) like a blocking call which cannot be aborted.
+                            boolean released = false;
+                            while (!released) {
+                                try {
+                                    released = release.await(5, TimeUnit.SECONDS);
+                                } catch (InterruptedException e) {
+                                }
+                            }
+                            active.decrementAndGet();
+                            return null;
+                        }
+                    });
+            final CountDownLatch nextRan = new CountDownLatch(1);
+            Future<Void> next = scheduler.submit("b", ExecutionScheduler.Priority.INTERACTIVE, kernel,
+                    new Callable<Void>() {
+                        @Override
+                        public Void call() {
+                            maxActive.set(active.get() + 1);
+                            nextRan.countDown();
+                            return null;
+                        }
+                    });
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            assertTrue(running.cancel(true));
+            assertFalse(nextRan.await(100, TimeUnit.MILLISECONDS));
+            assertEquals(1, scheduler.getRunningCount());
+
+            release.countDown();
+            next.get(5, TimeUnit.SECONDS);
+            assertEquals(1, maxActive.get());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void rejectInvalidSettings() {
+        try {
+            new ExecutionScheduler.Builder().weight("a", 0).build();
+            fail("A zero weight must be rejected.");
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            new ExecutionScheduler.Builder().maxConcurrency(0).build();
+            fail("A zero concurrency must be rejected.");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+}
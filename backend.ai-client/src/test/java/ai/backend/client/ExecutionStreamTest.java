@@ -0,0 +1,121 @@
+package ai.backend.client;
+
+import ai.backend.client.exceptions.AuthorizationFailureException;
+import ai.backend.client.exceptions.BackendClientException;
+import ai.backend.client.values.ExecutionMode;
+import ai.backend.client.values.ExecutionResult;
+import ai.backend.client.values.RunStatus;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static ai.backend.client.MockServerFixtures.configFor;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExecutionStreamTest {
+    private MockWebServer server;
+    private ClientConfig config;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        config = configFor(server);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void streamWithInput() throws Exception {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"kernelId\": \"streamtestkernel\"}"));
+        server.enqueue(new MockResponse().withWebSocketUpgrade(new WebSocketListener() {
+            @Override
+            public void onMessage(WebSocket webSocket, String text) {
+                JsonObject frame = new JsonParser().parse(text).getAsJsonObject();
+                String mode = frame.get("mode").getAsString();
+                if (mode.equals("query")) {
+                    webSocket.send("{\"status\": \"continued\", \"console\": [[\"stdout\", \"name? \"]]}");
+                    webSocket.send("{\"status\": \"waiting-input\", \"console\": []}");
+                } else if (mode.equals("input")) {
+                    webSocket.send("{\"result\": {\"status\": \"finished\", \"console\": [[\"stdout\", \"hello "
+                            + frame.get("code").getAsString() + "\"]]}}");
+                }
+            }
+
+            @Override
+            public void onClosing(WebSocket webSocket, int code, String reason) {
+                webSocket.close(1000, null);
+            }
+        }));
+
+        Kernel kernel = Kernel.getOrCreateInstance("streamtestkernel", "python3", config);
+        final BlockingQueue<ExecutionResult> results = new LinkedBlockingQueue<ExecutionResult>();
+        ExecutionStream stream = kernel.openStream(new ExecutionStreamListener() {
+            @Override
+            public void onResult(ExecutionStream stream, ExecutionResult result) {
+                results.add(result);
+                if (result.getStatus() == RunStatus.WAITING_INPUT) {
+                    stream.sendInput("world");
+                }
+            }
+        });
+        stream.execute(ExecutionMode.QUERY, Kernel.generateRunId(), "print('hello', input('name? '))", null);
+
+        ExecutionResult r1 = results.poll(5, TimeUnit.SECONDS);
+        assertEquals(RunStatus.CONTINUED, r1.getStatus());
+        assertEquals("name? ", r1.getStdout());
+        ExecutionResult r2 = results.poll(5, TimeUnit.SECONDS);
+        assertEquals(RunStatus.WAITING_INPUT, r2.getStatus());
+        ExecutionResult r3 = results.poll(5, TimeUnit.SECONDS);
+        assertEquals(RunStatus.FINISHED, r3.getStatus());
+        assertEquals("hello world", r3.getStdout());
+        stream.close();
+
+        server.takeRequest();
+        RecordedRequest upgrade = server.takeRequest();
+        assertEquals("GET", upgrade.getMethod());
+        assertEquals("/v2/stream/kernel/streamtestkernel/execute", upgrade.getPath());
+        assertTrue(upgrade.getHeader("Authorization")
+                .startsWith("BackendAI signMethod=HMAC-SHA256, credential=TESTESTSERSERESTSET:"));
+        assertEquals(config.getApiVersion(), upgrade.getHeader("X-BackendAI-Version"));
+    }
+
+    @Test
+    public void rejectedUpgrade() throws Exception {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"kernelId\": \"streamtestkernel\"}"));
+        server.enqueue(new MockResponse()
+                .setResponseCode(401)
+                .setHeader("Content-Type", "application/problem+json")
+                .setBody("{\"title\": \"Unauthorized access\"}"));
+
+        Kernel kernel = Kernel.getOrCreateInstance("streamtestkernel", "python3", config);
+        final BlockingQueue<Exception> errors = new LinkedBlockingQueue<Exception>();
+        ExecutionStream stream = kernel.openStream(new ExecutionStreamListener() {
+            @Override
+            public void onFailure(ExecutionStream stream, BackendClientException e) {
+                errors.add(e);
+            }
+        });
+        Exception e = errors.poll(5, TimeUnit.SECONDS);
+        assertTrue(e instanceof AuthorizationFailureException);
+        assertFalse(stream.isOpen());
+    }
+}
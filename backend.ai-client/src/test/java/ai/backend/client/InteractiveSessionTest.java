@@ -0,0 +1,132 @@
+package ai.backend.client;
+
+import ai.backend.client.values.ExecutionMode;
+import ai.backend.client.values.ExecutionResult;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static ai.backend.client.MockServerFixtures.configFor;
+import static ai.backend.client.MockServerFixtures.jsonResponse;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InteractiveSessionTest {
+    private MockWebServer server;
+    private ClientConfig config;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        config = configFor(server);
+        server.enqueue(jsonResponse("{\"kernelId\": \"interactivekernel\"}"));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void coalescePendingInputs() throws Exception {
+        server.enqueue(jsonResponse("{\"result\": {\"status\": \"waiting-input\", \"console\": []}}"));
+        server.enqueue(jsonResponse("{\"result\": {\"status\": \"finished\", \"console\": [[\"stdout\", \"3\"]]}}"));
+
+        Kernel kernel = Kernel.getOrCreateInstance("interactivekernel", "python3", config);
+        final CountDownLatch finished = new CountDownLatch(1);
+        InteractiveSession session = kernel.openInteractiveSession(new InteractiveSessionListener() {
+            @Override
+            public void onFinished(InteractiveSession session) {
+                finished.countDown();
+            }
+        });
+        session.submitInput("1");
+        session.submitInput("2");
+        session.start(ExecutionMode.QUERY, "print(int(input()) + int(input()))", null);
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+
+        server.takeRequest();
+        server.takeRequest();
+        RecordedRequest input = server.takeRequest();
+        JsonObject body = new JsonParser().parse(input.getBody().readUtf8()).getAsJsonObject();
+        assertEquals("input", body.get("mode").getAsString());
+        assertEquals("1\n2", body.get("code").getAsString());
+        assertEquals(3, server.getRequestCount());
+        assertEquals(1, session.getLatency().getCount());
+        assertFalse(session.isRunning());
+    }
+
+    @Test
+    public void pipelineInputOverStream() throws Exception {
+        final BlockingQueue<String> received = new LinkedBlockingQueue<String>();
+        final BlockingQueue<WebSocket> sockets = new LinkedBlockingQueue<WebSocket>();
+        server.enqueue(new MockResponse().withWebSocketUpgrade(new WebSocketListener() {
+            @Override
+            public void onOpen(WebSocket webSocket, Response response) {
+                sockets.add(webSocket);
+            }
+
+            @Override
+            public void onMessage(WebSocket webSocket, String text) {
+                JsonObject frame = new JsonParser().parse(text).getAsJsonObject();
+                received.add(frame.get("mode").getAsString() + ":" + frame.get("code").getAsString());
+            }
+
+            @Override
+            public void onClosing(WebSocket webSocket, int code, String reason) {
+                webSocket.close(1000, null);
+            }
+        }));
+
+        Kernel kernel = Kernel.getOrCreateInstance("interactivekernel", "python3", config);
+        final BlockingQueue<ExecutionResult> results = new LinkedBlockingQueue<ExecutionResult>();
+        InteractiveSession session = kernel.openInteractiveSession(true, 1, new InteractiveSessionListener() {
+            @Override
+            public void onResult(InteractiveSession session, ExecutionResult result) {
+                results.add(result);
+            }
+        });
+        WebSocket socket = sockets.poll(5, TimeUnit.SECONDS);
+        session.start(ExecutionMode.QUERY, "print(input()); print(input())", null);
+        assertEquals("query:print(input()); print(input())", received.poll(5, TimeUnit.SECONDS));
+
+        // One batch is sent right away without waiting for the input prompt, but not a second one.
+        session.submitInput("first");
+        assertEquals("input:first", received.poll(5, TimeUnit.SECONDS));
+        session.submitInput("second");
+        assertNull(received.poll(200, TimeUnit.MILLISECONDS));
+        assertEquals(1, session.getPendingInputCount());
+
+        // The prompt for the first input lets the second one go ahead, and records no latency.
+        socket.send("{\"status\": \"waiting-input\", \"console\": []}");
+        assertNotNull(results.poll(5, TimeUnit.SECONDS));
+        assertEquals("input:second", received.poll(5, TimeUnit.SECONDS));
+        assertEquals(0, session.getLatency().getCount());
+
+        // The response to the first input answers the prompt for the second one.
+        Thread.sleep(100);
+        socket.send("{\"status\": \"waiting-input\", \"console\": [[\"stdout\", \"first\"]]}");
+        assertNotNull(results.poll(5, TimeUnit.SECONDS));
+        assertEquals(1, session.getLatency().getCount());
+        assertTrue(session.getLatency().getPercentileMillis(0) >= 300);
+        assertNull(received.poll(200, TimeUnit.MILLISECONDS));
+
+        socket.send("{\"status\": \"finished\", \"console\": [[\"stdout\", \"second\"]]}");
+        assertTrue(results.poll(5, TimeUnit.SECONDS).isFinished());
+        assertEquals(2, session.getLatency().getCount());
+        session.close();
+    }
+}
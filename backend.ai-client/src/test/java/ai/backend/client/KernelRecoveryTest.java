@@ -0,0 +1,94 @@
+package ai.backend.client;
+
+import ai.backend.client.exceptions.KernelExpiredException;
+import ai.backend.client.values.ExecutionMode;
+import ai.backend.client.values.ExecutionResult;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+import static ai.backend.client.MockServerFixtures.configFor;
+import static ai.backend.client.MockServerFixtures.jsonResponse;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KernelRecoveryTest {
+    private MockWebServer server;
+    private ClientConfig config;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        config = configFor(server);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private static MockResponse expired() {
+        return new MockResponse().setResponseCode(404)
+                .setHeader("Content-Type", "application/problem+json")
+                .setBody("{\"title\": \"Kernel not found\"}");
+    }
+
+    @Test
+    public void recreateAndReplay() throws Exception {
+        File source = File.createTempFile("main", ".py");
+        source.deleteOnExit();
+        FileWriter writer = new FileWriter(source);
+        writer.write("print('hello')\n");
+        writer.close();
+        Map<String, String> files = new HashMap<String, String>();
+        files.put("main.py", source.getPath());
+
+        server.enqueue(jsonResponse("{\"kernelId\": \"oldkernel\"}"));
+        server.enqueue(new MockResponse().setResponseCode(204));
+        server.enqueue(expired());
+        server.enqueue(jsonResponse("{\"kernelId\": \"newkernel\"}"));
+        server.enqueue(new MockResponse().setResponseCode(204));
+        server.enqueue(jsonResponse("{\"result\": {\"status\": \"finished\", \"console\": [[\"stdout\", \"hello\"]]}}"));
+
+        Kernel kernel = Kernel.getOrCreateInstance("clienttoken", "python3", config);
+        kernel.setRecoveryEnabled(true);
+        kernel.upload(files);
+        ExecutionResult result = kernel.execute(ExecutionMode.BATCH, Kernel.generateRunId(), "", null);
+        assertEquals("hello", result.getStdout());
+        assertEquals("newkernel", kernel.getId());
+        assertEquals(1, kernel.getRecoveryCount());
+        assertEquals(1, config.getMetrics().getRecoveries());
+
+        assertEquals("/v2/kernel/create", server.takeRequest().getPath());
+        assertEquals("/v2/kernel/oldkernel/upload", server.takeRequest().getPath());
+        assertEquals("/v2/kernel/oldkernel", server.takeRequest().getPath());
+        String recreate = server.takeRequest().getBody().readUtf8();
+        assertTrue(recreate.contains("\"clientSessionToken\":\"clienttoken\""));
+        assertTrue(recreate.contains("\"lang\":\"python3\""));
+        assertTrue(server.takeRequest().getBody().readUtf8().contains("print('hello')"));
+        assertEquals("/v2/kernel/newkernel", server.takeRequest().getPath());
+    }
+
+    @Test
+    public void doNotReplayContinuation() throws Exception {
+        server.enqueue(jsonResponse("{\"kernelId\": \"oldkernel\"}"));
+        server.enqueue(expired());
+
+        Kernel kernel = Kernel.getOrCreateInstance("clienttoken", "python3", config);
+        kernel.setRecoveryEnabled(true);
+        try {
+            kernel.execute(ExecutionMode.CONTINUE, Kernel.generateRunId(), "", null);
+            fail("KernelExpiredException is expected");
+        } catch (KernelExpiredException e) {
+            assertEquals(0, kernel.getRecoveryCount());
+            assertEquals(2, server.getRequestCount());
+        }
+    }
+}
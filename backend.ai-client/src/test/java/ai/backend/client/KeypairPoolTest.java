@@ -0,0 +1,165 @@
+package ai.backend.client;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static ai.backend.client.MockServerFixtures.ACCESS_KEY;
+import static ai.backend.client.MockServerFixtures.SECRET_KEY;
+import static ai.backend.client.MockServerFixtures.configFor;
+import static ai.backend.client.MockServerFixtures.jsonResponse;
+import static ai.backend.client.MockServerFixtures.urlOf;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeypairPoolTest {
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private ClientConfig config(KeypairPool.Policy policy) {
+        return new ClientConfig.Builder()
+                .addKeypair(ACCESS_KEY, SECRET_KEY)
+                .addKeypair("SECONDSECONDSECONDS", "SECONDSECRETSECONDSECRETSECONDSECR")
+                .keypairPolicy(policy)
+                .endPoint(urlOf(server))
+                .build();
+    }
+
+    @Test
+    public void roundRobin() {
+        KeypairPool pool = config(KeypairPool.Policy.ROUND_ROBIN).getKeypairPool();
+        List<Keypair> keypairs = pool.getKeypairs();
+        assertSame(keypairs.get(0), pool.select());
+        assertSame(keypairs.get(1), pool.select());
+        assertSame(keypairs.get(0), pool.select());
+    }
+
+    @Test
+    public void assignToLeastLoadedAndRelease() throws Exception {
+        ClientConfig config = config(KeypairPool.Policy.LEAST_LOADED);
+        server.enqueue(jsonResponse("{\"kernelId\": \"firstkernel\"}"));
+        server.enqueue(jsonResponse("{\"kernelId\": \"secondkernel\"}"));
+        Kernel k1 = Kernel.getOrCreateInstance("firstkernel", "python3", config);
+        Kernel k2 = Kernel.getOrCreateInstance("secondkernel", "python3", config);
+        assertNotSame(k1.getKeypair(), k2.getKeypair());
+        assertTrue(server.takeRequest().getHeader("Authorization").contains("credential=TESTESTSERSERESTSET:"));
+        assertTrue(server.takeRequest().getHeader("Authorization").contains("credential=SECONDSECONDSECONDS:"));
+
+        server.enqueue(new MockResponse().setResponseCode(204));
+        k2.destroy();
+        assertEquals(0, k2.getKeypair().getSessionCount());
+        assertEquals(1, k1.getKeypair().getSessionCount());
+        assertTrue(server.takeRequest().getHeader("Authorization").contains("credential=SECONDSECONDSECONDS:"));
+    }
+
+    @Test
+    public void benchThrottledKeypair() throws Exception {
+        ClientConfig config = config(KeypairPool.Policy.LEAST_LOADED);
+        Keypair first = config.getKeypairPool().getKeypairs().get(0);
+        Keypair second = config.getKeypairPool().getKeypairs().get(1);
+        server.enqueue(new MockResponse().setResponseCode(429)
+                .setHeader("Content-Type", "application/problem+json")
+                .setBody("{\"title\": \"Too many requests\"}"));
+        server.enqueue(jsonResponse("{\"kernelId\": \"throttledkernel\"}"));
+        Kernel kernel = Kernel.getOrCreateInstance("throttledkernel", "python3", config);
+        assertSame(second, kernel.getKeypair());
+        assertTrue(first.isBenched());
+        assertEquals(1, first.getThrottledCount());
+        assertEquals(0, first.getSessionCount());
+        assertSame(second, config.getKeypairPool().select());
+    }
+
+    @Test
+    public void spreadConcurrentCreations() throws Exception {
+        final int n = 4;
+        final CountDownLatch arrived = new CountDownLatch(n);
+        final AtomicInteger created = new AtomicInteger();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                // Answer only once all creations are in flight.
+                arrived.countDown();
+                arrived.await(5, TimeUnit.SECONDS);
+                return jsonResponse(String.format("{\"kernelId\": \"concurrentkernel%d\"}", created.incrementAndGet()));
+            }
+        });
+        final ClientConfig config = config(KeypairPool.Policy.LEAST_LOADED);
+        ExecutorService pool = Executors.newFixedThreadPool(n);
+        try {
+            List<Future<Kernel>> futures = new ArrayList<Future<Kernel>>();
+            for (int i = 0; i < n; i++) {
+                futures.add(pool.submit(new Callable<Kernel>() {
+                    @Override
+                    public Kernel call() {
+                        return Kernel.getOrCreateInstance(null, "python3", config);
+                    }
+                }));
+            }
+            for (Future<Kernel> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(0, arrived.getCount());
+        for (Keypair keypair : config.getKeypairPool().getKeypairs()) {
+            assertEquals(n / 2, keypair.getSessionCount());
+        }
+    }
+
+    @Test
+    public void releaseReservationOnFailure() {
+        ClientConfig config = config(KeypairPool.Policy.LEAST_LOADED);
+        server.enqueue(new MockResponse().setResponseCode(500)
+                .setHeader("Content-Type", "application/problem+json")
+                .setBody("{\"title\": \"Internal server error\"}"));
+        try {
+            Kernel.getOrCreateInstance("failedkernel", "python3", config);
+            fail("The creation should fail");
+        } catch (RuntimeException e) {
+            // expected
+        }
+        for (Keypair keypair : config.getKeypairPool().getKeypairs()) {
+            assertEquals(0, keypair.getSessionCount());
+        }
+    }
+
+    @Test
+    public void countSharedSessionOnce() throws Exception {
+        ClientConfig config = configFor(server);
+        Keypair keypair = config.getKeypairPool().getKeypairs().get(0);
+        server.enqueue(jsonResponse("{\"kernelId\": \"sharedkernel\"}"));
+        server.enqueue(jsonResponse("{\"kernelId\": \"sharedkernel\"}"));
+        Kernel k1 = Kernel.getOrCreateInstance("sharedkernel", "python3", config);
+        Kernel k2 = Kernel.getOrCreateInstance("sharedkernel", "python3", config);
+        assertSame(keypair, k2.getKeypair());
+        assertEquals(1, keypair.getSessionCount());
+
+        server.enqueue(new MockResponse().setResponseCode(204));
+        k1.destroy();
+        assertEquals(0, keypair.getSessionCount());
+    }
+}
@@ -0,0 +1,38 @@
+package ai.backend.client;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+/**
+ * Shared fixtures of the tests running against a {@link MockWebServer}.
+ */
+final class MockServerFixtures {
+    static final String ACCESS_KEY = "TESTESTSERSERESTSET";
+    static final String SECRET_KEY = "KJSAKDFJASKFDJASDFJSAFDJSJFSAJFSDF";
+
+    private MockServerFixtures() {
+    }
+
+    static MockResponse jsonResponse(String body) {
+        return new MockResponse().setHeader("Content-Type", "application/json").setBody(body);
+    }
+
+    static String urlOf(MockWebServer server) {
+        return String.format("http://%s:%d", server.getHostName(), server.getPort());
+    }
+
+    /**
+     * Returns a configuration builder with the test keypair and the given server as the endpoint,
+     * for tests which set further options.
+     */
+    static ClientConfig.Builder builderFor(MockWebServer server) {
+        return new ClientConfig.Builder()
+                .accessKey(ACCESS_KEY)
+                .secretKey(SECRET_KEY)
+                .endPoint(urlOf(server));
+    }
+
+    static ClientConfig configFor(MockWebServer server) {
+        return builderFor(server).build();
+    }
+}
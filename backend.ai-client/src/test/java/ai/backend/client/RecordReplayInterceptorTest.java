@@ -0,0 +1,133 @@
+package ai.backend.client;
+
+import ai.backend.client.exceptions.AuthorizationFailureException;
+import ai.backend.client.exceptions.BackendClientException;
+import ai.backend.client.values.ExecutionMode;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.net.ConnectException;
+import java.util.concurrent.TimeUnit;
+
+import static ai.backend.client.MockServerFixtures.ACCESS_KEY;
+import static ai.backend.client.MockServerFixtures.SECRET_KEY;
+import static ai.backend.client.MockServerFixtures.jsonResponse;
+import static ai.backend.client.MockServerFixtures.urlOf;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecordReplayInterceptorTest {
+    private File recording;
+    private String endPoint;
+
+    @Before
+    public void setUp() throws Exception {
+        recording = File.createTempFile("traffic", ".bin");
+        recording.deleteOnExit();
+        MockWebServer server = new MockWebServer();
+        server.start();
+        endPoint = urlOf(server);
+        try {
+            RecordReplayInterceptor recorder = RecordReplayInterceptor.record(recording);
+            ClientConfig config = builder(SECRET_KEY).addInterceptor(recorder).build();
+            server.enqueue(jsonResponse("{\"kernelId\": \"recordedkernel\"}"));
+            server.enqueue(jsonResponse("{\"result\": {\"status\": \"finished\", \"console\": [[\"stdout\", \"hi\"]]}}")
+                    .setBodyDelay(200, TimeUnit.MILLISECONDS));
+            server.enqueue(jsonResponse("{\"lang\": \"python3\"}"));
+            Kernel kernel = Kernel.getOrCreateInstance("recordedkernel", "python3", config);
+            kernel.execute(ExecutionMode.QUERY, Kernel.generateRunId(), "print('hi')", null);
+            Thread.sleep(300);
+            kernel.verifyType();
+            server.shutdown();
+            try {
+                kernel.verifyType();
+                fail("The server is down.");
+            } catch (BackendClientException e) {
+                assertTrue(e.getCause() instanceof ConnectException);
+            }
+            recorder.close();
+            assertEquals(4, recorder.getExchangeCount());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        recording.delete();
+    }
+
+    private ClientConfig.Builder builder(String secretKey) {
+        return new ClientConfig.Builder()
+                .accessKey(ACCESS_KEY)
+                .secretKey(secretKey)
+                .endPoint(endPoint);
+    }
+
+    @Test
+    public void replayOfflineWithValidSignatures() throws Exception {
+        RecordReplayInterceptor replayer = RecordReplayInterceptor.replay(recording, 0);
+        ClientConfig config = builder(SECRET_KEY).addInterceptor(replayer).build();
+        replayer.validateSignatures(config);
+        long started = System.nanoTime();
+        Kernel kernel = Kernel.getOrCreateInstance("recordedkernel", "python3", config);
+        assertEquals("hi", kernel.execute(ExecutionMode.QUERY, Kernel.generateRunId(), "print('hi')", null)
+                .getStdout());
+        assertEquals("python3", kernel.verifyType());
+        assertTrue(System.nanoTime() - started < TimeUnit.MILLISECONDS.toNanos(150));
+        assertEquals(3, replayer.getExchangeCount());
+    }
+
+    @Test
+    public void replayRecordedFailures() throws Exception {
+        RecordReplayInterceptor replayer = RecordReplayInterceptor.replay(recording, 0);
+        ClientConfig config = builder(SECRET_KEY).addInterceptor(replayer).build();
+        Kernel kernel = Kernel.getOrCreateInstance("recordedkernel", "python3", config);
+        kernel.execute(ExecutionMode.QUERY, Kernel.generateRunId(), "print('hi')", null);
+        assertEquals("python3", kernel.verifyType());
+        try {
+            kernel.verifyType();
+            fail("The recorded exchange failed.");
+        } catch (BackendClientException e) {
+            assertTrue(e.getCause() instanceof ConnectException);
+        }
+        assertEquals(4, replayer.getExchangeCount());
+    }
+
+    @Test
+    public void replayRecordedArrivalPattern() throws Exception {
+        RecordReplayInterceptor replayer = RecordReplayInterceptor.replay(recording, 2);
+        ClientConfig config = builder(SECRET_KEY).addInterceptor(replayer).build();
+        long started = System.nanoTime();
+        Kernel kernel = Kernel.getOrCreateInstance("recordedkernel", "python3", config);
+        kernel.execute(ExecutionMode.QUERY, Kernel.generateRunId(), "print('hi')", null);
+        // The pause before this request was recorded, so its answer is held back at half the recorded pace.
+        kernel.verifyType();
+        assertTrue(System.nanoTime() - started >= TimeUnit.MILLISECONDS.toNanos(250));
+    }
+
+    @Test
+    public void replayAtRecordedSpeed() throws Exception {
+        RecordReplayInterceptor replayer = RecordReplayInterceptor.replay(recording, 1);
+        ClientConfig config = builder(SECRET_KEY).addInterceptor(replayer).build();
+        Kernel kernel = Kernel.getOrCreateInstance("recordedkernel", "python3", config);
+        long started = System.nanoTime();
+        kernel.execute(ExecutionMode.QUERY, Kernel.generateRunId(), "print('hi')", null);
+        assertTrue(System.nanoTime() - started >= TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    @Test
+    public void rejectInvalidSignatures() throws Exception {
+        RecordReplayInterceptor replayer = RecordReplayInterceptor.replay(recording, 0);
+        ClientConfig config = builder("WRONGWRONGWRONGWRONGWRONGWRONGWRONG").addInterceptor(replayer).build();
+        replayer.validateSignatures(builder(SECRET_KEY).build());
+        try {
+            Kernel.getOrCreateInstance("recordedkernel", "python3", config);
+            fail("The signature should have been rejected.");
+        } catch (AuthorizationFailureException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package ai.backend.client;
+
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static ai.backend.client.MockServerFixtures.builderFor;
+import static ai.backend.client.MockServerFixtures.jsonResponse;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestHedgerTest {
+    private static final int WARM_UP = 20;
+
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private ClientConfig config(double budget) throws Exception {
+        return builderFor(server)
+                .hedgePercentile(95)
+                .hedgeBudget(budget)
+                .build();
+    }
+
+    // MockWebServer delays HTTP/1 responses before the headers when a body delay is set.
+
+    private Kernel warmUp(ClientConfig config) throws Exception {
+        server.enqueue(jsonResponse("{\"kernelId\": \"hedgedkernel\"}"));
+        Kernel kernel = Kernel.getOrCreateInstance("hedgedkernel", "python3", config);
+        for (int i = 0; i < WARM_UP; i++) {
+            server.enqueue(jsonResponse("{\"lang\": \"python3\"}"));
+            assertEquals("python3", kernel.verifyType());
+        }
+        assertEquals(0, config.getMetrics().getHedges());
+        return kernel;
+    }
+
+    @Test
+    public void hedgeWinsOverStalledRequest() throws Exception {
+        ClientConfig config = config(0.1);
+        Kernel kernel = warmUp(config);
+        server.enqueue(jsonResponse("{\"lang\": \"stalled\"}").setBodyDelay(3, TimeUnit.SECONDS));
+        server.enqueue(jsonResponse("{\"lang\": \"python3\"}"));
+        long started = System.nanoTime();
+        assertEquals("python3", kernel.verifyType());
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(2));
+        assertEquals(1, config.getMetrics().getHedges());
+        assertEquals(1, config.getMetrics().getHedgeWins());
+        assertEquals(WARM_UP + 3, server.getRequestCount());
+    }
+
+    @Test
+    public void noHedgeWithoutBudget() throws Exception {
+        ClientConfig config = config(0);
+        Kernel kernel = warmUp(config);
+        server.enqueue(jsonResponse("{\"lang\": \"python3\"}").setBodyDelay(300, TimeUnit.MILLISECONDS));
+        assertEquals("python3", kernel.verifyType());
+        assertEquals(0, config.getMetrics().getHedges());
+        assertEquals(1, config.getMetrics().getHedgeBudgetExhausted());
+        assertEquals(WARM_UP + 2, server.getRequestCount());
+    }
+
+    @Test
+    public void hedgeOnSingleThreadExecutor() throws Exception {
+        // The caller occupies the only thread of the executor, so neither call may need another one.
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try {
+            ClientConfig config = builderFor(server)
+                    .hedgePercentile(95)
+                    .hedgeBudget(0.1)
+                    .executor(executor)
+                    .build();
+            final Kernel kernel = warmUp(config);
+            server.enqueue(jsonResponse("{\"lang\": \"stalled\"}").setBodyDelay(3, TimeUnit.SECONDS));
+            server.enqueue(jsonResponse("{\"lang\": \"python3\"}"));
+            Future<String> type = config.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return kernel.verifyType();
+                }
+            });
+            assertEquals("python3", type.get(2, TimeUnit.SECONDS));
+            assertEquals(1, config.getMetrics().getHedgeWins());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
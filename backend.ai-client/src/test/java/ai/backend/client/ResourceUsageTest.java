@@ -0,0 +1,81 @@
+package ai.backend.client;
+
+import ai.backend.client.values.ExecutionMode;
+import ai.backend.client.values.ExecutionResult;
+import ai.backend.client.values.ResourceUsage;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.Test;
+
+import static ai.backend.client.MockServerFixtures.builderFor;
+import static ai.backend.client.MockServerFixtures.configFor;
+import static ai.backend.client.MockServerFixtures.jsonResponse;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResourceUsageTest {
+
+    @Test
+    public void aggregateSessionAndExecutionUsage() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.start();
+        try {
+            ResourceUsageRegistry registry = new ResourceUsageRegistry();
+            ClientConfig config = builderFor(server)
+                    .resourceUsageRegistry(registry)
+                    .build();
+            server.enqueue(jsonResponse("{\"kernelId\": \"firstkernel\"}"));
+            server.enqueue(jsonResponse("{\"result\": {\"status\": \"continued\", \"console\": [], "
+                    + "\"stats\": {\"cpu_used\": 80}}}"));
+            server.enqueue(jsonResponse("{\"result\": {\"status\": \"finished\", \"console\": [], "
+                    + "\"stats\": {\"cpu_used\": 120}}}"));
+            server.enqueue(jsonResponse("{\"stats\": {\"cpu_used\": 1500, \"mem_max_bytes\": 4096, "
+                    + "\"net_rx_bytes\": 10, \"net_tx_bytes\": 20, \"io_read_bytes\": 30, \"io_write_bytes\": 40}}"));
+            Kernel first = Kernel.getOrCreateInstance("firstkernel", "python3", config);
+            String runId = Kernel.generateRunId();
+            ExecutionResult result = first.execute(ExecutionMode.QUERY, runId, "print(1)", null);
+            assertEquals(80, result.getResourceUsage().getCpuUsedMillis());
+            result = first.execute(ExecutionMode.CONTINUE, runId, "", null);
+            assertEquals(120, result.getResourceUsage().getCpuUsedMillis());
+            assertNull(first.getResourceUsage());
+            first.destroy();
+            ResourceUsage usage = first.getResourceUsage();
+            assertEquals(1500, usage.getCpuUsedMillis());
+            assertEquals(4096, usage.getMemMaxBytes());
+            assertEquals(-1, usage.getIoMaxScratchSize());
+
+            server.enqueue(jsonResponse("{\"kernelId\": \"secondkernel\"}"));
+            server.enqueue(jsonResponse("{\"stats\": {\"cpu_used\": 500, \"mem_max_bytes\": 8192}}"));
+            Kernel second = Kernel.getOrCreateInstance("secondkernel", "python3", config);
+            second.destroy();
+
+            ResourceUsageRegistry.Summary summary = registry.getSummary("python3");
+            assertEquals(2, summary.getSessionCount());
+            assertEquals(1, summary.getExecutionCount());
+            assertEquals(2000, summary.getTotalCpuMillis());
+            assertEquals(1500, summary.getMaxCpuMillis());
+            assertEquals(1000.0, summary.getMeanCpuMillis());
+            assertEquals(8192, summary.getMaxMemBytes());
+            assertEquals(10, summary.getTotalNetRxBytes());
+            assertEquals(120, summary.getTotalExecutionCpuMillis());
+            assertNull(registry.getSummary("ruby"));
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void noUsageWithoutStats() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.start();
+        try {
+            ClientConfig config = configFor(server);
+            server.enqueue(jsonResponse("{\"kernelId\": \"emptykernel\"}"));
+            server.enqueue(new MockResponse().setResponseCode(204));
+            Kernel kernel = Kernel.getOrCreateInstance("emptykernel", "python3", config);
+            kernel.destroy();
+            assertNull(kernel.getResourceUsage());
+        } finally {
+            server.shutdown();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package ai.backend.client;
+
+import ai.backend.client.exceptions.KernelExpiredException;
+import ai.backend.client.values.SessionInfo;
+import com.google.gson.JsonParser;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static ai.backend.client.MockServerFixtures.builderFor;
+import static ai.backend.client.MockServerFixtures.jsonResponse;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SessionInfoCacheTest {
+
+    private static SessionInfo info(String json) {
+        return new SessionInfo(new JsonParser().parse(json).getAsJsonObject());
+    }
+
+    @Test
+    public void parseSessionInfo() {
+        SessionInfo i = info("{\"lang\": \"python3\", \"age\": 1234.5, \"memoryLimit\": 131072, "
+                + "\"numQueriesExecuted\": 3, \"cpuCreditUsed\": 12.5, \"queryTimeout\": -1}");
+        assertEquals("python3", i.getLang());
+        assertEquals(1234.5, i.getAge());
+        assertEquals(131072, i.getMemoryLimit());
+        assertEquals(3, i.getNumQueriesExecuted());
+        assertEquals(12.5, i.getCpuCreditUsed());
+        assertEquals(-1, i.getIdleTimeout());
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() {
+        SessionInfoCache cache = new SessionInfoCache(60000, 2);
+        cache.put("a", info("{\"lang\": \"a\"}"));
+        cache.put("b", info("{\"lang\": \"b\"}"));
+        assertNotNull(cache.get("a"));
+        cache.put("c", info("{\"lang\": \"c\"}"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void expireAfterTtl() throws Exception {
+        SessionInfoCache cache = new SessionInfoCache(20, 10);
+        cache.put("a", info("{\"lang\": \"a\"}"));
+        Thread.sleep(50);
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void sharedAcrossKernels() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.start();
+        try {
+            SessionInfoCache cache = new SessionInfoCache(60000, 100);
+            ClientConfig config = builderFor(server)
+                    .sessionInfoCache(cache)
+                    .build();
+            server.enqueue(jsonResponse("{\"kernelId\": \"cachedkernel\"}"));
+            server.enqueue(jsonResponse("{\"kernelId\": \"cachedkernel\"}"));
+            server.enqueue(jsonResponse("{\"lang\": \"python3\"}"));
+            Kernel k1 = Kernel.getOrCreateInstance("cachedkernel", "python3", config);
+            Kernel k2 = Kernel.getOrCreateInstance("cachedkernel", "python3", config);
+            assertEquals("python3", k1.verifyType());
+            assertEquals("python3", k2.verifyType());
+            assertEquals(3, server.getRequestCount());
+            assertEquals(1, cache.getHitCount());
+
+            server.enqueue(new MockResponse().setResponseCode(404)
+                    .setHeader("Content-Type", "application/problem+json")
+                    .setBody("{\"title\": \"Kernel not found\"}"));
+            try {
+                k1.interrupt();
+                fail("KernelExpiredException is expected");
+            } catch (KernelExpiredException e) {
+                assertEquals(0, cache.size());
+            }
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void keepInvalidationDuringFetch() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.start();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            SessionInfoCache cache = new SessionInfoCache(60000, 100);
+            ClientConfig config = builderFor(server)
+                    .sessionInfoCache(cache)
+                    .build();
+            server.enqueue(jsonResponse("{\"kernelId\": \"racingkernel\"}"));
+            server.enqueue(jsonResponse("{\"lang\": \"python3\"}").setBodyDelay(300, TimeUnit.MILLISECONDS));
+            server.enqueue(new MockResponse().setResponseCode(204));
+            final Kernel kernel = Kernel.getOrCreateInstance("racingkernel", "python3", config);
+            server.takeRequest();
+            Future<SessionInfo> fetched = executor.submit(new Callable<SessionInfo>() {
+                @Override
+                public SessionInfo call() {
+                    return kernel.getInfo();
+                }
+            });
+            assertEquals("GET", server.takeRequest(5, TimeUnit.SECONDS).getMethod());
+            // The session is restarted while the metadata is still on the wire.
+            kernel.refresh();
+            assertEquals("python3", fetched.get(5, TimeUnit.SECONDS).getLang());
+            assertEquals(0, cache.size());
+        } finally {
+            executor.shutdownNow();
+            server.shutdown();
+        }
+    }
+}
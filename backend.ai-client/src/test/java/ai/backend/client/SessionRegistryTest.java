@@ -0,0 +1,177 @@
+package ai.backend.client;
+
+import ai.backend.client.values.ExecutionMode;
+import ai.backend.client.values.ExecutionResult;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static ai.backend.client.MockServerFixtures.builderFor;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SessionRegistryTest {
+    private MockWebServer server;
+    private final AtomicInteger deletes = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (request.getMethod().equals("DELETE")) {
+                    deletes.incrementAndGet();
+                }
+                if (request.getPath().startsWith("/v2/stream/")) {
+                    return new MockResponse().withWebSocketUpgrade(new WebSocketListener() {
+                        @Override
+                        public void onClosing(WebSocket webSocket, int code, String reason) {
+                            webSocket.close(1000, null);
+                        }
+                    });
+                }
+                if (request.getMethod().equals("POST") && !request.getPath().equals("/v2/kernel/create")) {
+                    return new MockResponse().setHeader("Content-Type", "application/json")
+                            .setBody("{\"result\": {\"status\": \"waiting-input\", \"console\": []}}");
+                }
+                return new MockResponse().setHeader("Content-Type", "application/json")
+                        .setBody("{\"kernelId\": \"" + Kernel.generateSessionToken() + "\"}");
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private ClientConfig config(SessionRegistry registry) {
+        return builderFor(server)
+                .sessionRegistry(registry)
+                .build();
+    }
+
+    @Test
+    public void reapIdleSessions() throws Exception {
+        SessionRegistry registry = new SessionRegistry.Builder()
+                .idleTimeoutMillis(100)
+                .checkIntervalMillis(50)
+                .batchSize(2)
+                .shutdownHook(false)
+                .build();
+        ClientConfig config = config(registry);
+        Kernel k1 = Kernel.getOrCreateInstance(null, "python3", config);
+        Kernel.getOrCreateInstance(null, "python3", config);
+        Kernel.getOrCreateInstance(null, "python3", config);
+        assertEquals(3, registry.size());
+        assertTrue(registry.contains(k1));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (registry.getReapedCount() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        registry.close();
+        assertEquals(0, registry.size());
+        assertEquals(3, registry.getReapedCount());
+        assertEquals(3, deletes.get());
+    }
+
+    @Test
+    public void destroyAllWithinDeadline() throws Exception {
+        SessionRegistry registry = new SessionRegistry.Builder()
+                .idleTimeoutMillis(0)
+                .shutdownHook(false)
+                .build();
+        ClientConfig config = config(registry);
+        Kernel k1 = Kernel.getOrCreateInstance(null, "python3", config);
+        Kernel.getOrCreateInstance(null, "python3", config);
+        k1.destroy();
+        assertEquals(1, registry.size());
+        // The reaper is disabled with a zero idle timeout.
+        assertEquals(0, registry.reapIdle());
+        assertEquals(1, registry.destroyAll(1000));
+        assertEquals(0, registry.size());
+        assertEquals(2, deletes.get());
+    }
+
+    @Test
+    public void keepSessionsWithOpenStreams() throws Exception {
+        SessionRegistry registry = new SessionRegistry.Builder()
+                .idleTimeoutMillis(50)
+                .checkIntervalMillis(60000)
+                .shutdownHook(false)
+                .build();
+        ClientConfig config = config(registry);
+        Kernel kernel = Kernel.getOrCreateInstance(null, "python3", config);
+        ExecutionStream stream = kernel.openStream(new ExecutionStreamListener() {
+        });
+        assertTrue(kernel.isBusy());
+        Thread.sleep(100);
+        assertEquals(0, registry.reapIdle());
+
+        stream.close();
+        assertFalse(kernel.isBusy());
+        Thread.sleep(100);
+        assertEquals(1, registry.reapIdle());
+        registry.close();
+        assertEquals(1, deletes.get());
+    }
+
+    @Test
+    public void claimIdleSessionAtomically() throws Exception {
+        SessionRegistry registry = new SessionRegistry.Builder()
+                .idleTimeoutMillis(50)
+                .checkIntervalMillis(60000)
+                .shutdownHook(false)
+                .build();
+        ClientConfig config = config(registry);
+        Kernel kernel = Kernel.getOrCreateInstance(null, "python3", config);
+        Thread.sleep(100);
+        assertTrue(kernel.claimIfIdle(50));
+        // A claimed session is busy, so neither a second claim nor the reaper touches it.
+        assertFalse(kernel.claimIfIdle(50));
+        assertEquals(0, registry.reapIdle());
+        kernel.endUse();
+        // Ending the use refreshes the last used time.
+        assertFalse(kernel.claimIfIdle(50));
+        registry.close();
+        assertEquals(0, deletes.get());
+    }
+
+    @Test
+    public void reapInteractiveSessionsWaitingForInput() throws Exception {
+        SessionRegistry registry = new SessionRegistry.Builder()
+                .idleTimeoutMillis(50)
+                .checkIntervalMillis(60000)
+                .shutdownHook(false)
+                .build();
+        ClientConfig config = config(registry);
+        Kernel kernel = Kernel.getOrCreateInstance(null, "python3", config);
+        final CountDownLatch prompted = new CountDownLatch(1);
+        InteractiveSession session = kernel.openInteractiveSession(new InteractiveSessionListener() {
+            @Override
+            public void onResult(InteractiveSession session, ExecutionResult result) {
+                prompted.countDown();
+            }
+        });
+        session.start(ExecutionMode.QUERY, "input()", null);
+        assertTrue(prompted.await(5, TimeUnit.SECONDS));
+        // The run waits for an input which never comes.
+        Thread.sleep(100);
+        assertEquals(1, registry.reapIdle());
+        session.close();
+        registry.close();
+        assertEquals(1, deletes.get());
+    }
+}
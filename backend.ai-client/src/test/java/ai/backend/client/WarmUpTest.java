@@ -0,0 +1,35 @@
+package ai.backend.client;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.Test;
+
+import static ai.backend.client.MockServerFixtures.builderFor;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WarmUpTest {
+
+    @Test
+    public void openAllConnectionsWithDefaultLimits() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setHeader("Content-Type", "application/json").setBody("{}");
+            }
+        });
+        server.start();
+        try {
+            // The per-host request limit of the dispatcher is 5 by default.
+            ClientConfig config = builderFor(server)
+                    .warmUpConnections(16)
+                    .build();
+            assertEquals(16, config.warmUp());
+            assertEquals(16, server.getRequestCount());
+        } finally {
+            server.shutdown();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package ai.backend.client.benchmark;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+
+/**
+ * A self-signed certificate for "localhost" generated with the JDK keytool,
+ * used to serve the mock manager over TLS.
+ */
+public class LocalhostCertificate {
+    private static final char[] PASSWORD = "benchmark".toCharArray();
+    private static LocalhostCertificate instance;
+
+    private final SSLContext serverContext;
+    private final SSLContext clientContext;
+    private final X509TrustManager trustManager;
+
+    private LocalhostCertificate() throws IOException, GeneralSecurityException {
+        File keyStoreFile = File.createTempFile("localhost", ".p12");
+        keyStoreFile.delete();
+        keyStoreFile.deleteOnExit();
+        String keytool = System.getProperty("java.home") + File.separator + "bin" + File.separator + "keytool";
+        Process p = new ProcessBuilder(keytool, "-genkeypair", "-alias", "localhost",
+                "-keyalg", "RSA", "-keysize", "2048", "-validity", "1",
+                "-dname", "CN=localhost", "-ext", "san=dns:localhost,ip:127.0.0.1", "-ext", "bc:c",
+                "-storetype", "PKCS12", "-keystore", keyStoreFile.getPath(),
+                "-storepass", new String(PASSWORD), "-keypass", new String(PASSWORD))
+                .redirectErrorStream(true)
+                .start();
+        try {
+            if (p.waitFor() != 0) {
+                throw new IOException("keytool failed with exit code " + p.exitValue());
+            }
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        InputStream in = new FileInputStream(keyStoreFile);
+        try {
+            keyStore.load(in, PASSWORD);
+        } finally {
+            in.close();
+        }
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(keyStore, PASSWORD);
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(keyStore);
+        TrustManager[] trustManagers = tmf.getTrustManagers();
+        this.trustManager = (X509TrustManager) trustManagers[0];
+        this.serverContext = SSLContext.getInstance("TLS");
+        this.serverContext.init(kmf.getKeyManagers(), null, null);
+        this.clientContext = SSLContext.getInstance("TLS");
+        this.clientContext.init(null, trustManagers, null);
+    }
+
+    public static synchronized LocalhostCertificate get() throws IOException, GeneralSecurityException {
+        if (instance == null) {
+            instance = new LocalhostCertificate();
+        }
+        return instance;
+    }
+
+    public SSLSocketFactory getServerSocketFactory() {
+        return serverContext.getSocketFactory();
+    }
+
+    public SSLSocketFactory getClientSocketFactory() {
+        return clientContext.getSocketFactory();
+    }
+
+    public X509TrustManager getTrustManager() {
+        return trustManager;
+    }
+}
@@ -0,0 +1,97 @@
+package ai.backend.client.benchmark;
+
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A local mock of the manager API used by the benchmarks.
+ * It answers kernel creation, execution, information and destroy requests with fixed JSON bodies.
+ */
+public class MockManager {
+    private final MockWebServer server = new MockWebServer();
+    private final long delayMillis;
+
+    /**
+     * @param delayMillis The server-side processing delay added to each API response.
+     */
+    public MockManager(long delayMillis) {
+        this.delayMillis = delayMillis;
+        this.server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return respond(request);
+            }
+        });
+    }
+
+    /**
+     * Serve over TLS with the self-signed {@link LocalhostCertificate}.
+     *
+     * @param http2 If true, HTTP/2 is offered via ALPN in addition to HTTP/1.1.
+     */
+    public MockManager useHttps(boolean http2) throws IOException, GeneralSecurityException {
+        this.server.useHttps(LocalhostCertificate.get().getServerSocketFactory(), false);
+        List<Protocol> protocols = new ArrayList<Protocol>();
+        if (http2) {
+            protocols.add(Protocol.HTTP_2);
+        }
+        protocols.add(Protocol.HTTP_1_1);
+        this.server.setProtocols(protocols);
+        return this;
+    }
+
+    public MockManager start() throws IOException {
+        this.server.start();
+        return this;
+    }
+
+    public void shutdown() throws IOException {
+        this.server.shutdown();
+    }
+
+    public String getEndPoint() {
+        String scheme = this.server.url("/").isHttps() ? "https" : "http";
+        return String.format("%s://localhost:%d", scheme, this.server.getPort());
+    }
+
+    public int getRequestCount() {
+        return this.server.getRequestCount();
+    }
+
+    protected MockResponse respond(RecordedRequest request) {
+        String path = request.getPath();
+        String method = request.getMethod();
+        if (path.equals("/")) {
+            return json("{\"version\": \"v2.20170315\"}");
+        }
+        MockResponse response;
+        if (path.equals("/v2/kernel/create")) {
+            response = json("{\"kernelId\": \"" + Long.toHexString(System.nanoTime()) + "0000\"}");
+        } else if (method.equals("GET")) {
+            response = json("{\"lang\": \"python3\", \"age\": 1000, \"numQueriesExecuted\": 1}");
+        } else if (method.equals("DELETE")) {
+            response = json("{\"stats\": {}}");
+        } else if (method.equals("POST") && path.endsWith("/upload")) {
+            response = new MockResponse().setResponseCode(204);
+        } else {
+            response = json("{\"result\": {\"status\": \"finished\", \"console\": [[\"stdout\", \"hello\\n\"]]}}");
+        }
+        if (this.delayMillis > 0) {
+            response.setBodyDelay(this.delayMillis, TimeUnit.MILLISECONDS);
+        }
+        return response;
+    }
+
+    private static MockResponse json(String body) {
+        return new MockResponse().setHeader("Content-Type", "application/json").setBody(body);
+    }
+}
@@ -0,0 +1,68 @@
+package ai.backend.client.benchmark;
+
+import ai.backend.client.ClientConfig;
+import ai.backend.client.Kernel;
+import ai.backend.client.LatencyRecorder;
+import ai.backend.client.RecordReplayInterceptor;
+import ai.backend.client.values.ExecutionMode;
+
+import java.io.File;
+
+/**
+ * Measures the client-side overhead of API calls by replaying recorded traffic without any network access.
+ *
+ * The traffic of a session running a number of query executions is first recorded against a local mock server,
+ * after a live run without the interceptor as a baseline.
+ * It is then replayed at full speed, where the measured latency is the cost of signing, serializing and parsing
+ * in the client alone, and at the recorded speed, which reproduces the recorded latency profile.
+ *
+ * Usage: ./gradlew :backend.ai-client:benchmark -Pbenchmark=ReplayBenchmark
+ */
+public class ReplayBenchmark {
+    private static final int EXECUTIONS = 200;
+    private static final long SERVER_DELAY_MILLIS = 2;
+
+    public static void main(String[] args) throws Exception {
+        File recording = File.createTempFile("backend.ai-traffic", ".bin");
+        recording.deleteOnExit();
+        MockManager manager = new MockManager(SERVER_DELAY_MILLIS).start();
+        String endPoint = manager.getEndPoint();
+        try {
+            run("live", builder(endPoint).build());
+            RecordReplayInterceptor recorder = RecordReplayInterceptor.record(recording);
+            run("record", builder(endPoint).addInterceptor(recorder).build());
+            recorder.close();
+        } finally {
+            manager.shutdown();
+        }
+        System.out.println(String.format("recording: %d exchanges, %d bytes", EXECUTIONS + 1, recording.length()));
+        for (double speed : new double[] {0, 1}) {
+            RecordReplayInterceptor replayer = RecordReplayInterceptor.replay(recording, speed);
+            ClientConfig config = builder(endPoint).addInterceptor(replayer).build();
+            replayer.validateSignatures(config);
+            run(String.format("replay x%.0f", speed), config);
+        }
+    }
+
+    private static ClientConfig.Builder builder(String endPoint) {
+        return new ClientConfig.Builder()
+                .accessKey("TESTESTSERSERESTSET")
+                .secretKey("KJSAKDFJASKFDJASDFJSAFDJSJFSAJFSDF")
+                .endPoint(endPoint);
+    }
+
+    private static void run(String mode, ClientConfig config) {
+        LatencyRecorder latency = new LatencyRecorder(EXECUTIONS);
+        Kernel kernel = Kernel.getOrCreateInstance("replaykernel", "python3", config);
+        long started = System.nanoTime();
+        for (int i = 0; i < EXECUTIONS; i++) {
+            long begin = System.nanoTime();
+            kernel.execute(ExecutionMode.QUERY, Kernel.generateRunId(), "print('hello')", null);
+            latency.record(System.nanoTime() - begin);
+        }
+        double elapsed = (System.nanoTime() - started) / 1e6;
+        System.out.println(String.format("%-10s %8d calls %10.1f ms  mean %.3f ms  p50 %.3f ms  p99 %.3f ms",
+                mode, EXECUTIONS, elapsed, latency.getMeanMillis(),
+                latency.getPercentileMillis(50), latency.getPercentileMillis(99)));
+    }
+}
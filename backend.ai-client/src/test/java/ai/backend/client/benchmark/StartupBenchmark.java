@@ -0,0 +1,155 @@
+package ai.backend.client.benchmark;
+
+import ai.backend.client.ClientConfig;
+import ai.backend.client.Kernel;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measures the cold start cost of the client: the time from launching a fresh JVM to the completion of
+ * the first signed request against a local mock server.
+ *
+ * Each round runs {@link Probe} in a child JVM with {@code -verbose:class}.
+ * It reports the total time measured by the parent, the time spent in the child's main method,
+ * and the number of classes loaded before the first response.
+ * The classes loaded in the last round, grouped by package, are written to a profile file
+ * (build/startup-class-profile.txt by default, or the first argument) to track improvements over time.
+ *
+ * Usage: ./gradlew :backend.ai-client:benchmark -Pbenchmark=StartupBenchmark
+ */
+public class StartupBenchmark {
+    private static final int ROUNDS = 5;
+    private static final String MARKER = "FIRST_RESPONSE";
+    private static final Pattern LOADED = Pattern.compile(
+            "\\[Loaded (\\S+) from|\\[class,load\\] (\\S+) source:");
+
+    public static void main(String[] args) throws Exception {
+        File profile = new File(args.length > 0 ? args[0] : "build/startup-class-profile.txt");
+        MockManager manager = new MockManager(0).start();
+        double[] totals = new double[ROUNDS];
+        double[] mains = new double[ROUNDS];
+        List<String> classes = null;
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                classes = new ArrayList<String>();
+                double[] result = runChild(manager.getEndPoint(), classes);
+                totals[round] = result[0];
+                mains[round] = result[1];
+            }
+        } finally {
+            manager.shutdown();
+        }
+        System.out.println(String.format("%16s %16s %10s", "total(ms,p50)", "main(ms,p50)", "classes"));
+        System.out.println(String.format("%16.1f %16.1f %10d", median(totals), median(mains), classes.size()));
+        writeProfile(profile, classes);
+        System.out.println("class-loading profile: " + profile.getPath());
+    }
+
+    /**
+     * Run a child JVM and collect the classes it loaded until the first response.
+     *
+     * @return The total and in-main elapsed times in milliseconds.
+     */
+    private static double[] runChild(String endPoint, List<String> classes) throws Exception {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ProcessBuilder pb = new ProcessBuilder(java, "-verbose:class",
+                "-cp", System.getProperty("java.class.path"), Probe.class.getName(), endPoint);
+        pb.redirectErrorStream(true);
+        long started = System.nanoTime();
+        Process process = pb.start();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), "UTF-8"));
+        double total = -1;
+        double main = -1;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith(MARKER)) {
+                total = (System.nanoTime() - started) / 1e6;
+                main = Double.parseDouble(line.substring(MARKER.length()).trim());
+                continue;
+            }
+            if (total >= 0) {
+                continue;
+            }
+            Matcher m = LOADED.matcher(line);
+            if (m.find()) {
+                classes.add(m.group(1) != null ? m.group(1) : m.group(2));
+            }
+        }
+        if (process.waitFor() != 0 || total < 0) {
+            throw new IllegalStateException("The probe JVM failed to complete the first request.");
+        }
+        return new double[] {total, main};
+    }
+
+    private static void writeProfile(File file, List<String> classes) throws IOException {
+        final Map<String, Integer> byPackage = new LinkedHashMap<String, Integer>();
+        for (String name : classes) {
+            int dot = name.lastIndexOf('.');
+            String pkg = dot < 0 ? "(default)" : name.substring(0, dot);
+            Integer count = byPackage.get(pkg);
+            byPackage.put(pkg, count == null ? 1 : count + 1);
+        }
+        List<String> packages = new ArrayList<String>(byPackage.keySet());
+        Collections.sort(packages, new Comparator<String>() {
+            @Override
+            public int compare(String a, String b) {
+                return byPackage.get(b) - byPackage.get(a);
+            }
+        });
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        PrintWriter out = new PrintWriter(new FileWriter(file));
+        try {
+            out.println(String.format("# %d classes loaded before the first response", classes.size()));
+            out.println("# classes per package");
+            for (String pkg : packages) {
+                out.println(String.format("%6d %s", byPackage.get(pkg), pkg));
+            }
+            out.println("# classes in load order");
+            for (String name : classes) {
+                out.println(name);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    /**
+     * The program run in the child JVM, which builds a configuration and creates a kernel.
+     */
+    public static class Probe {
+        public static void main(String[] args) {
+            long started = System.nanoTime();
+            ClientConfig config = new ClientConfig.Builder()
+                    .accessKey("TESTESTSERSERESTSET")
+                    .secretKey("KJSAKDFJASKFDJASDFJSAFDJSJFSAJFSDF")
+                    .endPoint(args[0])
+                    .build();
+            Kernel.getOrCreateInstance(null, "python3", config);
+            System.out.println(MARKER + " " + (System.nanoTime() - started) / 1e6);
+            System.out.flush();
+            System.exit(0);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package ai.backend.client.benchmark;
+
+import ai.backend.client.ClientConfig;
+import ai.backend.client.ClientExecutors;
+import ai.backend.client.Kernel;
+import ai.backend.client.values.ExecutionMode;
+import ai.backend.client.values.ExecutionResult;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compares how the blocking API scales with the number of concurrent sessions under different thread models.
+ *
+ * Each task creates a session and runs one execute call against a local mock server that adds a fixed delay,
+ * so the throughput is bound by how many blocking calls can be in flight at once.
+ * The peak thread count includes the threads of the mock server.
+ *
+ * Usage: ./gradlew :backend.ai-client:benchmark -Pbenchmark=ThreadModelBenchmark
+ */
+public class ThreadModelBenchmark {
+    private static final int[] SESSIONS = {100, 1000, 2000};
+    private static final long SERVER_DELAY_MILLIS = 50;
+    private static final int FIXED_POOL_SIZE = 64;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println(String.format("virtual threads supported: %s", ClientExecutors.isVirtualThreadSupported()));
+        System.out.println(String.format("%-16s %8s %12s %12s %12s",
+                "model", "sessions", "elapsed(ms)", "calls/s", "peakThreads"));
+        MockManager manager = new MockManager(SERVER_DELAY_MILLIS).start();
+        try {
+            for (int sessions : SESSIONS) {
+                ExecutorService fixed = Executors.newFixedThreadPool(FIXED_POOL_SIZE);
+                run("platform-fixed", sessions, builder(manager).executor(fixed));
+                fixed.shutdown();
+                ExecutorService cached = ClientExecutors.newCachedDaemonPool("benchmark");
+                run("platform-cached", sessions, builder(manager).executor(cached));
+                cached.shutdown();
+                if (ClientExecutors.isVirtualThreadSupported()) {
+                    run("virtual", sessions, builder(manager).virtualThreads(true));
+                }
+            }
+        } finally {
+            manager.shutdown();
+        }
+    }
+
+    private static ClientConfig.Builder builder(MockManager manager) {
+        return new ClientConfig.Builder()
+                .accessKey("TESTESTSERSERESTSET")
+                .secretKey("KJSAKDFJASKFDJASDFJSAFDJSJFSAJFSDF")
+                .endPoint(manager.getEndPoint())
+                .maxIdleConnections(64);
+    }
+
+    private static void run(String model, int sessions, ClientConfig.Builder builder) throws Exception {
+        final ClientConfig config = builder.build();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        List<Future<ExecutionResult>> futures = new ArrayList<Future<ExecutionResult>>();
+        long started = System.nanoTime();
+        for (int i = 0; i < sessions; i++) {
+            futures.add(config.submit(new Callable<ExecutionResult>() {
+                @Override
+                public ExecutionResult call() {
+                    Kernel kernel = Kernel.getOrCreateInstance(null, "python3", config);
+                    return kernel.execute(ExecutionMode.QUERY, Kernel.generateRunId(), "print('hello')", null);
+                }
+            }));
+        }
+        for (Future<ExecutionResult> f : futures) {
+            f.get();
+        }
+        double elapsed = (System.nanoTime() - started) / 1e6;
+        System.out.println(String.format("%-16s %8d %12.1f %12.1f %12d",
+                model, sessions, elapsed, 2 * sessions / (elapsed / 1e3), threads.getPeakThreadCount()));
+        config.getHttpClient().connectionPool().evictAll();
+    }
+}
@@ -0,0 +1,103 @@
+package ai.backend.client.benchmark;
+
+import ai.backend.client.ClientConfig;
+import ai.backend.client.Kernel;
+import ai.backend.client.values.ExecutionMode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures the effect of {@link ClientConfig#warmUp()} and HTTP/2 multiplexing against a local TLS mock server.
+ *
+ * For each combination of protocol and warm-up, it reports the latency of the first kernel creation
+ * after building the configuration, and the throughput of concurrent execute calls.
+ *
+ * Usage: ./gradlew :backend.ai-client:benchmark -Pbenchmark=WarmUpBenchmark
+ */
+public class WarmUpBenchmark {
+    private static final int ROUNDS = 10;
+    private static final int THREADS = 32;
+    private static final int CALLS_PER_THREAD = 20;
+    private static final long SERVER_DELAY_MILLIS = 5;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println(String.format("%-8s %-6s %14s %14s %12s %6s",
+                "protocol", "warm", "warmUp(ms)", "first(ms,p50)", "exec(req/s)", "conns"));
+        for (boolean http2 : new boolean[] {false, true}) {
+            for (boolean warm : new boolean[] {false, true}) {
+                run(http2, warm);
+            }
+        }
+    }
+
+    private static void run(boolean http2, boolean warm) throws Exception {
+        LocalhostCertificate certificate = LocalhostCertificate.get();
+        MockManager manager = new MockManager(SERVER_DELAY_MILLIS).useHttps(http2).start();
+        double[] warmUps = new double[ROUNDS];
+        double[] firsts = new double[ROUNDS];
+        double throughput = 0;
+        int connections = 0;
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                final ClientConfig config = new ClientConfig.Builder()
+                        .accessKey("TESTESTSERSERESTSET")
+                        .secretKey("KJSAKDFJASKFDJASDFJSAFDJSJFSAJFSDF")
+                        .endPoint(manager.getEndPoint())
+                        .sslSocketFactory(certificate.getClientSocketFactory(), certificate.getTrustManager())
+                        .preferHttp2(http2)
+                        .warmUpConnections(http2 ? 1 : THREADS)
+                        .maxIdleConnections(THREADS)
+                        .build();
+                if (warm) {
+                    long t0 = System.nanoTime();
+                    config.warmUp();
+                    warmUps[round] = (System.nanoTime() - t0) / 1e6;
+                }
+                long t1 = System.nanoTime();
+                final Kernel kernel = Kernel.getOrCreateInstance(null, "python3", config);
+                firsts[round] = (System.nanoTime() - t1) / 1e6;
+
+                if (round == ROUNDS - 1) {
+                    ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+                    List<Future<?>> futures = new ArrayList<Future<?>>();
+                    long t2 = System.nanoTime();
+                    for (int i = 0; i < THREADS; i++) {
+                        futures.add(pool.submit(new Callable<Void>() {
+                            @Override
+                            public Void call() {
+                                for (int j = 0; j < CALLS_PER_THREAD; j++) {
+                                    kernel.execute(ExecutionMode.QUERY, Kernel.generateRunId(), "print('hello')", null);
+                                }
+                                return null;
+                            }
+                        }));
+                    }
+                    for (Future<?> f : futures) {
+                        f.get();
+                    }
+                    double elapsed = (System.nanoTime() - t2) / 1e9;
+                    throughput = THREADS * CALLS_PER_THREAD / elapsed;
+                    connections = config.getHttpClient().connectionPool().connectionCount();
+                    pool.shutdown();
+                }
+                config.getHttpClient().connectionPool().evictAll();
+            }
+        } finally {
+            manager.shutdown();
+        }
+        System.out.println(String.format("%-8s %-6s %14.2f %14.2f %12.1f %6d",
+                http2 ? "h2" : "http/1.1", warm, median(warmUps), median(firsts), throughput, connections));
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}